@@ -0,0 +1,271 @@
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Exposes the code under benchmark to the benchmarks in package {@code bench}. JMH does not accept
+ * benchmarks in the default package, and classes in a named package cannot refer to the default
+ * package, so each benchmark looks this class up by name once in its setup and from then on calls
+ * the operations through the {@code java.util.function} interfaces returned here, which the JIT
+ * inlines like direct calls.
+ */
+public final class BenchmarkTargets {
+
+    private BenchmarkTargets() {
+    }
+
+    /**
+     * Generates benchmark input over the characters {@code 'a'} onwards.
+     *
+     * @param length       the number of characters
+     * @param alphabetSize the number of distinct characters
+     * @param skew         "uniform" for equally likely characters, "zipf" for a Zipf distribution
+     *                     with exponent 1
+     * @param seed         the random seed
+     * @return the input, containing every character of the alphabet at least once
+     */
+    public static String input(int length, int alphabetSize, String skew, long seed) {
+        Random r = new Random(seed);
+        double[] cumulative = new double[alphabetSize];
+        double total = 0;
+        for (int i = 0; i < alphabetSize; i++) {
+            total += skew.equals("zipf") ? 1.0 / (i + 1) : 1.0;
+            cumulative[i] = total;
+        }
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < alphabetSize; i++) {
+            sb.append((char) ('a' + i));
+        }
+        while (sb.length() < length) {
+            int k = Arrays.binarySearch(cumulative, r.nextDouble() * total);
+            sb.append((char) ('a' + (k < 0 ? -k - 1 : k)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the frequency map of a string
+     */
+    public static Map<Character, Integer> frequencies(String s) {
+        Map<Character, Integer> freq = new HashMap<>();
+        for (int i = 0; i < s.length(); i++) {
+            freq.merge(s.charAt(i), 1, Integer::sum);
+        }
+        return freq;
+    }
+
+    public static Function<String, Object> huffmanFromSeed() {
+        return Huffman::new;
+    }
+
+    public static Function<Map<Character, Integer>, Object> huffmanFromMap() {
+        return Huffman::new;
+    }
+
+    /**
+     * @param construction the name of a {@link Huffman.Construction}
+     */
+    public static Function<Map<Character, Integer>, Object> huffmanFromMap(String construction) {
+        Huffman.Construction c = Huffman.Construction.valueOf(construction);
+        return freq -> new Huffman(freq, c);
+    }
+
+    public static Function<String, String> compress(Object huffman) {
+        return ((Huffman) huffman)::compress;
+    }
+
+    public static Function<String, byte[]> compressToBytes(Object huffman) {
+        return ((Huffman) huffman)::compressToBytes;
+    }
+
+    public static Function<String, String> decompress(Object huffman) {
+        return ((Huffman) huffman)::decompress;
+    }
+
+    public static BiFunction<byte[], Long, String> decompressBytes(Object huffman) {
+        return ((Huffman) huffman)::decompress;
+    }
+
+    public static ToLongBiFunction<char[], long[]> compressToWords(Object huffman) {
+        Huffman h = (Huffman) huffman;
+        return (input, dst) -> h.compressTo(input, 0, input.length, dst);
+    }
+
+    public static ToIntBiFunction<long[], char[]> decompressWords(Object huffman, long bitLength) {
+        Huffman h = (Huffman) huffman;
+        return (src, dst) -> h.decompressTo(src, bitLength, dst, 0);
+    }
+
+    /**
+     * @return a workload that compresses each message with {@link Huffman#compress(String)},
+     * returning the total number of bits
+     */
+    public static ToLongFunction<List<String>> compressEach(Object huffman) {
+        Huffman h = (Huffman) huffman;
+        return messages -> {
+            long bits = 0;
+            for (String message : messages) {
+                bits += h.compress(message).length();
+            }
+            return bits;
+        };
+    }
+
+    public static Function<List<String>, Object> compressBatch(Object huffman) {
+        return ((Huffman) huffman)::compressBatch;
+    }
+
+    public static Function<Object, List<String>> decompressBatch(Object huffman) {
+        Huffman h = (Huffman) huffman;
+        return batch -> h.decompressBatch((CompressedBatch) batch);
+    }
+
+    /**
+     * @param heap "binary" for {@link BinaryMinHeapImpl}, "dary2", "dary4" or "dary8" for a
+     *             {@link DaryMinHeapImpl} of that arity, or "int" for {@link IntMinHeap}, which
+     *             is driven through its primitive methods
+     * @return a workload that adds every key, with its index as the value, to an empty heap,
+     * returning the heap's size
+     */
+    public static ToIntFunction<int[]> heapAdd(String heap) {
+        if (heap.equals("int")) {
+            return keys -> {
+                IntMinHeap h = new IntMinHeap(keys.length);
+                for (int i = 0; i < keys.length; i++) {
+                    h.add(keys[i], i);
+                }
+                return h.size();
+            };
+        }
+        return keys -> {
+            BinaryMinHeap<Integer, Integer> h = binaryHeap(heap);
+            for (int i = 0; i < keys.length; i++) {
+                h.add(keys[i], i);
+            }
+            return h.size();
+        };
+    }
+
+    /**
+     * @return a workload that adds every key and then extracts them all, returning the sum of
+     * the extracted values
+     */
+    public static ToIntFunction<int[]> heapAddExtractMin(String heap) {
+        if (heap.equals("int")) {
+            return keys -> {
+                IntMinHeap h = new IntMinHeap(keys.length);
+                for (int i = 0; i < keys.length; i++) {
+                    h.add(keys[i], i);
+                }
+                int sum = 0;
+                while (!h.isEmpty()) {
+                    sum += h.removeMin();
+                }
+                return sum;
+            };
+        }
+        return keys -> {
+            BinaryMinHeap<Integer, Integer> h = binaryHeap(heap);
+            for (int i = 0; i < keys.length; i++) {
+                h.add(keys[i], i);
+            }
+            int sum = 0;
+            while (!h.isEmpty()) {
+                sum += h.extractMin().value;
+            }
+            return sum;
+        };
+    }
+
+    /**
+     * @return a workload that adds every key and then decreases each one to a key smaller than
+     * all of them, returning the value left at the top
+     */
+    public static ToIntFunction<int[]> heapAddDecreaseKey(String heap) {
+        if (heap.equals("int")) {
+            return keys -> {
+                IntMinHeap h = new IntMinHeap(keys.length);
+                for (int i = 0; i < keys.length; i++) {
+                    h.add(keys[i], i);
+                }
+                for (int i = 0; i < keys.length; i++) {
+                    h.decreaseKey(i, -1 - i);
+                }
+                return h.peekValue();
+            };
+        }
+        return keys -> {
+            BinaryMinHeap<Integer, Integer> h = binaryHeap(heap);
+            for (int i = 0; i < keys.length; i++) {
+                h.add(keys[i], i);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                h.decreaseKey(i, -1 - i);
+            }
+            return h.peek().value;
+        };
+    }
+
+    private static BinaryMinHeap<Integer, Integer> binaryHeap(String heap) {
+        if (heap.equals("binary")) {
+            return new BinaryMinHeapImpl<>();
+        }
+        if (heap.startsWith("dary")) {
+            return new DaryMinHeapImpl<>(Integer.parseInt(heap.substring(4)));
+        }
+        throw new IllegalArgumentException(heap);
+    }
+
+    /**
+     * @param heap "locked" for a {@link BinaryMinHeapImpl} behind one lock, as the heap is shared
+     *             without {@link ConcurrentMinHeap}, or "concurrent" for a {@link
+     *             ConcurrentMinHeap}
+     * @return a heap shared by all threads, to pass to {@link #sharedHeapAdd(Object)} and {@link
+     * #sharedHeapPoll(Object)}
+     */
+    public static Object sharedHeap(String heap) {
+        if (heap.equals("locked")) {
+            return new BinaryMinHeapImpl<Integer, Object>();
+        }
+        if (heap.equals("concurrent")) {
+            return new ConcurrentMinHeap<Integer, Object>();
+        }
+        throw new IllegalArgumentException(heap);
+    }
+
+    /**
+     * @return an operation that adds a new value with the given key
+     */
+    @SuppressWarnings("unchecked")
+    public static IntConsumer sharedHeapAdd(Object heap) {
+        if (heap instanceof ConcurrentMinHeap) {
+            ConcurrentMinHeap<Integer, Object> h = (ConcurrentMinHeap<Integer, Object>) heap;
+            return key -> h.add(key, new Object());
+        }
+        BinaryMinHeapImpl<Integer, Object> h = (BinaryMinHeapImpl<Integer, Object>) heap;
+        return key -> {
+            synchronized (h) {
+                h.add(key, new Object());
+            }
+        };
+    }
+
+    /**
+     * @return an operation that extracts the smallest key, or returns -1 if the heap is empty
+     */
+    @SuppressWarnings("unchecked")
+    public static IntSupplier sharedHeapPoll(Object heap) {
+        if (heap instanceof ConcurrentMinHeap) {
+            ConcurrentMinHeap<Integer, Object> h = (ConcurrentMinHeap<Integer, Object>) heap;
+            return () -> {
+                BinaryMinHeap.Entry<Integer, Object> e = h.poll();
+                return e == null ? -1 : e.key;
+            };
+        }
+        BinaryMinHeapImpl<Integer, Object> h = (BinaryMinHeapImpl<Integer, Object>) heap;
+        return () -> {
+            synchronized (h) {
+                return h.isEmpty() ? -1 : h.extractMin().key;
+            }
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Compresses {@link #messages} short messages of 50 to 200 characters one call at a time and as
+ * one batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BatchBenchmark {
+
+    @Param({"1000"})
+    int messages;
+
+    List<String> input;
+    Object batch;
+    ToLongFunction<List<String>> compressEach;
+    Function<List<String>, Object> compressBatch;
+    Function<Object, List<String>> decompressBatch;
+
+    @Setup
+    public void setUp() {
+        String text = Targets.get("input", 1 << 20, 64, "zipf", 42L);
+        Object huffman = Targets.<Function<String, Object>>get("huffmanFromSeed").apply(text);
+        Random r = new Random(42);
+        input = new ArrayList<>();
+        for (int i = 0; i < messages; i++) {
+            int start = r.nextInt(text.length() - 200);
+            input.add(text.substring(start, start + 50 + r.nextInt(151)));
+        }
+        compressEach = Targets.get("compressEach", huffman);
+        compressBatch = Targets.get("compressBatch", huffman);
+        decompressBatch = Targets.get("decompressBatch", huffman);
+        batch = compressBatch.apply(input);
+    }
+
+    @Benchmark
+    public long compressEach() {
+        return compressEach.applyAsLong(input);
+    }
+
+    @Benchmark
+    public Object compressBatch() {
+        return compressBatch.apply(input);
+    }
+
+    @Benchmark
+    public List<String> decompressBatch() {
+        return decompressBatch.apply(batch);
+    }
+}
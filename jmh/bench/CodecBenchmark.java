@@ -0,0 +1,93 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Compresses and decompresses {@link #inputLength} characters with a codebook built from the input
+ * itself, across alphabet sizes and character distributions. Multiply the operation rate by
+ * {@code inputLength} for characters per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CodecBenchmark {
+
+    @Param({"2", "26", "256", "4096"})
+    int alphabetSize;
+
+    @Param({"uniform", "zipf"})
+    String skew;
+
+    @Param({"65536"})
+    int inputLength;
+
+    String input;
+    String compressed;
+    byte[] packed;
+    long packedBits;
+    Function<String, String> compress;
+    Function<String, byte[]> compressToBytes;
+    Function<String, String> decompress;
+    BiFunction<byte[], Long, String> decompressBytes;
+    char[] chars;
+    long[] words;
+    char[] decoded;
+    ToLongBiFunction<char[], long[]> compressToWords;
+    ToIntBiFunction<long[], char[]> decompressWords;
+
+    @Setup
+    public void setUp() {
+        input = Targets.get("input", inputLength, alphabetSize, skew, 42L);
+        Object huffman = Targets.<Function<String, Object>>get("huffmanFromSeed").apply(input);
+        compress = Targets.get("compress", huffman);
+        compressToBytes = Targets.get("compressToBytes", huffman);
+        decompress = Targets.get("decompress", huffman);
+        decompressBytes = Targets.get("decompressBytes", huffman);
+        compressed = compress.apply(input);
+        packed = compressToBytes.apply(input);
+        packedBits = compressed.length();
+
+        chars = input.toCharArray();
+        words = new long[(int) (packedBits + 63) / 64];
+        decoded = new char[inputLength];
+        compressToWords = Targets.get("compressToWords", huffman);
+        compressToWords.applyAsLong(chars, words);
+        decompressWords = Targets.get("decompressWords", huffman, packedBits);
+    }
+
+    @Benchmark
+    public String compress() {
+        return compress.apply(input);
+    }
+
+    @Benchmark
+    public byte[] compressToBytes() {
+        return compressToBytes.apply(input);
+    }
+
+    @Benchmark
+    public String decompress() {
+        return decompress.apply(compressed);
+    }
+
+    @Benchmark
+    public String decompressBytes() {
+        return decompressBytes.apply(packed, packedBits);
+    }
+
+    @Benchmark
+    public long compressToWords() {
+        return compressToWords.applyAsLong(chars, words);
+    }
+
+    @Benchmark
+    public int decompressWords() {
+        return decompressWords.applyAsInt(words, decoded);
+    }
+}
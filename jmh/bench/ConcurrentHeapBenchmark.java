@@ -0,0 +1,64 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Shares one heap between producer threads adding random keys and consumer threads extracting the
+ * smallest, comparing a {@code BinaryMinHeapImpl} behind one lock with {@code ConcurrentMinHeap}.
+ * The {@code balanced} group runs 4 producers against 4 consumers and {@code producers} runs 7
+ * against 1; scores are operations per millisecond for each kind of thread.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConcurrentHeapBenchmark {
+
+    @Param({"locked", "concurrent"})
+    String heap;
+
+    IntConsumer add;
+    IntSupplier poll;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Object shared = Targets.get("sharedHeap", heap);
+        add = Targets.get("sharedHeapAdd", shared);
+        poll = Targets.get("sharedHeapPoll", shared);
+        for (int i = 0; i < 10000; i++) {
+            add.accept(ThreadLocalRandom.current().nextInt(1 << 20));
+        }
+    }
+
+    @Benchmark
+    @Group("balanced")
+    @GroupThreads(4)
+    public void balancedAdd() {
+        add.accept(ThreadLocalRandom.current().nextInt(1 << 20));
+    }
+
+    @Benchmark
+    @Group("balanced")
+    @GroupThreads(4)
+    public int balancedPoll() {
+        return poll.getAsInt();
+    }
+
+    @Benchmark
+    @Group("producers")
+    @GroupThreads(7)
+    public void producersAdd() {
+        add.accept(ThreadLocalRandom.current().nextInt(1 << 20));
+    }
+
+    @Benchmark
+    @Group("producers")
+    @GroupThreads(1)
+    public int producersPoll() {
+        return poll.getAsInt();
+    }
+}
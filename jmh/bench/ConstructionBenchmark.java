@@ -0,0 +1,46 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Builds a codebook from a seed string, which counts the characters first, and from the frequency
+ * map of the same seed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConstructionBenchmark {
+
+    @Param({"16", "256", "4096"})
+    int alphabetSize;
+
+    @Param({"100000"})
+    int seedLength;
+
+    String seed;
+    Map<Character, Integer> frequencies;
+    Function<String, Object> fromSeed;
+    Function<Map<Character, Integer>, Object> fromMap;
+
+    @Setup
+    public void setUp() {
+        seed = Targets.get("input", seedLength, alphabetSize, "zipf", 42L);
+        frequencies = Targets.get("frequencies", seed);
+        fromSeed = Targets.get("huffmanFromSeed");
+        fromMap = Targets.get("huffmanFromMap");
+    }
+
+    @Benchmark
+    public Object fromSeed() {
+        return fromSeed.apply(seed);
+    }
+
+    @Benchmark
+    public Object fromMap() {
+        return fromMap.apply(frequencies);
+    }
+}
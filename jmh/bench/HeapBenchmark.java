@@ -0,0 +1,55 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs heap workloads over {@link #size} random keys: adding them all, adding then extracting them
+ * all, and adding then decreasing each key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeapBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    @Param({"binary", "dary2", "dary4", "dary8", "int"})
+    String heap;
+
+    int[] keys;
+    ToIntFunction<int[]> add;
+    ToIntFunction<int[]> addExtractMin;
+    ToIntFunction<int[]> addDecreaseKey;
+
+    @Setup
+    public void setUp() {
+        Random r = new Random(42);
+        keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = r.nextInt(size);
+        }
+        add = Targets.get("heapAdd", heap);
+        addExtractMin = Targets.get("heapAddExtractMin", heap);
+        addDecreaseKey = Targets.get("heapAddDecreaseKey", heap);
+    }
+
+    @Benchmark
+    public int add() {
+        return add.applyAsInt(keys);
+    }
+
+    @Benchmark
+    public int addExtractMin() {
+        return addExtractMin.applyAsInt(keys);
+    }
+
+    @Benchmark
+    public int addDecreaseKey() {
+        return addDecreaseKey.applyAsInt(keys);
+    }
+}
@@ -0,0 +1,38 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Builds a codebook from a frequency map with each {@code Huffman.Construction}, to compare the
+ * priority queues used for merging on alphabets up to the whole {@code char} range.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MergeBenchmark {
+
+    @Param({"256", "4096", "65536"})
+    int alphabetSize;
+
+    @Param({"HEAP", "INT_HEAP", "TWO_QUEUE", "RADIX"})
+    String construction;
+
+    Map<Character, Integer> frequencies;
+    Function<Map<Character, Integer>, Object> fromMap;
+
+    @Setup
+    public void setUp() {
+        String seed = Targets.get("input", 4 * alphabetSize, alphabetSize, "zipf", 42L);
+        frequencies = Targets.get("frequencies", seed);
+        fromMap = Targets.get("huffmanFromMap", construction);
+    }
+
+    @Benchmark
+    public Object fromMap() {
+        return fromMap.apply(frequencies);
+    }
+}
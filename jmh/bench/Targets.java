@@ -0,0 +1,33 @@
+package bench;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Looks up the operations published by the default-package {@code BenchmarkTargets} class.
+ */
+final class Targets {
+
+    private Targets() {
+    }
+
+    /**
+     * Calls the static method of {@code BenchmarkTargets} with the given name and number of
+     * arguments.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T get(String name, Object... args) {
+        try {
+            for (Method m : Class.forName("BenchmarkTargets").getMethods()) {
+                if (m.getName().equals(name) && m.getParameterCount() == args.length) {
+                    return (T) m.invoke(null, args);
+                }
+            }
+        } catch (ClassNotFoundException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        throw new IllegalArgumentException(name);
+    }
+}
@@ -0,0 +1,363 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * One-pass adaptive Huffman coding (the FGK algorithm), which needs no seed or frequency map up
+ * front. The tree starts out holding only a "not yet transmitted" (NYT) leaf. A character seen
+ * before is sent as the path to its leaf; a new character is sent as the path to the NYT leaf
+ * followed by its 16 raw bits, after which the NYT leaf splits to give it a leaf of its own. After
+ * every character both sides increment its weight and swap nodes to keep the sibling property, so
+ * the codes follow the frequencies seen so far.
+ * <p>
+ * An instance holds the state of one direction of one stream: a compressing instance and the
+ * decompressing instance that reads its output must each see the same characters in the same
+ * order, starting from new instances. Calls continue the stream where the previous call left
+ * off.
+ * <p>
+ * Nodes are kept in arrays, indexed so that a smaller index means a higher node number in the
+ * sibling property: the root is node 0 and weights never increase with the index.
+ */
+public class AdaptiveHuffman {
+
+    private static final int INTERNAL = -1;
+    private static final int NYT = -2;
+
+    private int[] weight = new int[64];
+    private int[] parent = new int[64];
+    private int[] left = new int[64];
+    private int[] right = new int[64];
+    private int[] symbol = new int[64];
+    private int size;
+    private int nyt;
+    private int[] leafOf = new int[128];
+    private int[] path = new int[64];
+
+    // leafOf holds the node of each character plus one, so that 0 means not yet seen
+
+    public AdaptiveHuffman() {
+        size = 1;
+        nyt = 0;
+        parent[0] = -1;
+        left[0] = -1;
+        right[0] = -1;
+        symbol[0] = NYT;
+    }
+
+    private int leaf(char c) {
+        return c < leafOf.length ? leafOf[c] - 1 : -1;
+    }
+
+    /**
+     * Fills {@code path} with the bits from the root down to a node.
+     *
+     * @return the number of bits
+     */
+    private int pathTo(int node) {
+        int depth = 0;
+        for (int n = node; parent[n] != -1; n = parent[n]) {
+            depth++;
+        }
+        if (depth > path.length) {
+            path = new int[Math.max(depth, path.length * 2)];
+        }
+        int i = depth;
+        for (int n = node; parent[n] != -1; n = parent[n]) {
+            path[--i] = right[parent[n]] == n ? 1 : 0;
+        }
+        return depth;
+    }
+
+    /**
+     * Writes the code for a character, given the path to its leaf, or to the NYT leaf if it is
+     * new, that {@link #pathTo(int)} has just filled, and updates the tree.
+     *
+     * @param node  the character's leaf, or -1 if it is new
+     * @param depth the length of the path
+     */
+    private void encode(char c, int node, int depth, BitWriter out) {
+        for (int i = 0; i < depth; ) {
+            int chunk = Math.min(32, depth - i);
+            long bits = 0;
+            for (int k = 0; k < chunk; k++) {
+                bits = (bits << 1) | path[i++];
+            }
+            out.write(bits, chunk);
+        }
+        if (node < 0) {
+            out.write(c, 16);
+        }
+        update(c);
+    }
+
+    /**
+     * Reads the code for a character and updates the tree.
+     *
+     * @return the decoded character
+     * @throws IllegalArgumentException if the input ends in the middle of a code
+     */
+    char decode(BitReader in) {
+        int node = 0;
+        while (symbol[node] == INTERNAL) {
+            if (in.remaining() == 0) {
+                throw new IllegalArgumentException();
+            }
+            node = in.peek() < 0 ? right[node] : left[node];
+            in.skip(1);
+        }
+        char c;
+        if (node == nyt) {
+            if (in.remaining() < 16) {
+                throw new IllegalArgumentException();
+            }
+            c = (char) (in.peek() >>> 48);
+            in.skip(16);
+        } else {
+            c = (char) symbol[node];
+        }
+        update(c);
+        return c;
+    }
+
+    private void update(char c) {
+        int q = leaf(c);
+        if (q < 0) {
+            int p = nyt;
+            grow(size + 2);
+            int leaf = size;
+            nyt = size + 1;
+            size += 2;
+            newLeaf(leaf, p);
+            newLeaf(nyt, p);
+            symbol[leaf] = c;
+            symbol[nyt] = NYT;
+            symbol[p] = INTERNAL;
+            left[p] = nyt;
+            right[p] = leaf;
+            if (c >= leafOf.length) {
+                leafOf = Arrays.copyOf(leafOf, Math.max(c + 1, leafOf.length * 2));
+            }
+            leafOf[c] = leaf + 1;
+
+            weight[leaf] = 1;
+            weight[p] = 1;
+            q = parent[p];
+        }
+        while (q != -1) {
+            int leader = blockLeader(q);
+            if (leader != q && leader != parent[q]) {
+                swap(q, leader);
+                q = leader;
+            }
+            weight[q]++;
+            q = parent[q];
+        }
+    }
+
+    private void newLeaf(int n, int p) {
+        parent[n] = p;
+        left[n] = -1;
+        right[n] = -1;
+        weight[n] = 0;
+    }
+
+    /**
+     * @return the node with the highest number, that is the smallest index, among those with the
+     * same weight as node q
+     */
+    private int blockLeader(int q) {
+        int lo = 0;
+        int hi = q;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (weight[mid] > weight[q]) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Exchanges the subtrees at two nodes of equal weight, neither an ancestor of the other.
+     */
+    private void swap(int a, int b) {
+        int s = symbol[a];
+        symbol[a] = symbol[b];
+        symbol[b] = s;
+        int l = left[a];
+        left[a] = left[b];
+        left[b] = l;
+        int r = right[a];
+        right[a] = right[b];
+        right[b] = r;
+        relink(a);
+        relink(b);
+    }
+
+    /**
+     * Points the children of node n, or the leaf index of its character, back at n.
+     */
+    private void relink(int n) {
+        if (symbol[n] == INTERNAL) {
+            parent[left[n]] = n;
+            parent[right[n]] = n;
+        } else {
+            leafOf[symbol[n]] = n + 1;
+        }
+    }
+
+    private void grow(int capacity) {
+        if (capacity > weight.length) {
+            int n = Math.max(capacity, weight.length * 2);
+            weight = Arrays.copyOf(weight, n);
+            parent = Arrays.copyOf(parent, n);
+            left = Arrays.copyOf(left, n);
+            right = Arrays.copyOf(right, n);
+            symbol = Arrays.copyOf(symbol, n);
+        }
+    }
+
+    /**
+     * Compresses the input string, continuing the stream of earlier calls.
+     *
+     * @param input the string to compress, can be the empty string
+     * @return a string of ones and zeroes, representing the binary encoding of the input
+     * @throws IllegalArgumentException if the input is null
+     */
+    public String compress(String input) {
+        if (input == null) {
+            throw new IllegalArgumentException();
+        }
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            int node = leaf(c);
+            int depth = pathTo(node < 0 ? nyt : node);
+            for (int k = 0; k < depth; k++) {
+                output.append((char) ('0' + path[k]));
+            }
+            if (node < 0) {
+                for (int b = 15; b >= 0; b--) {
+                    output.append((char) ('0' + ((c >>> b) & 1)));
+                }
+            }
+            update(c);
+        }
+        return output.toString();
+    }
+
+    /**
+     * Decompresses the input string, continuing the stream of earlier calls.
+     *
+     * @param input the String of binary digits to decompress, produced by a compressing instance
+     *              that has seen the same characters as this one
+     * @return the decoded version of the compressed input string
+     * @throws IllegalArgumentException if the input is null, contains characters that are not 0
+     *                                  or 1, or ends in the middle of a code
+     */
+    public String decompress(String input) {
+        if (input == null) {
+            throw new IllegalArgumentException();
+        }
+        BitReader in = new BitReader(ByteBuffer.wrap(BitReader.pack(input)), input.length());
+        StringBuilder output = new StringBuilder();
+        while (in.remaining() > 0) {
+            output.append(decode(in));
+        }
+        return output.toString();
+    }
+
+    /**
+     * Compresses everything from a reader in one pass, in the block format of {@link
+     * HuffmanOutputStream}. Whatever each read returns is written out and flushed as soon as it is
+     * encoded, so this suits pipes and sockets whose data arrives over time. Neither stream is
+     * closed.
+     *
+     * @param in  the characters to compress
+     * @param out where to write the compressed blocks
+     * @return the number of characters compressed
+     * @throws IllegalArgumentException if either argument is null
+     * @throws IOException              if reading or writing fails
+     */
+    public long compress(Reader in, OutputStream out) throws IOException {
+        if (in == null || out == null) {
+            throw new IllegalArgumentException();
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        ByteBuffer block = ByteBuffer.allocate(HuffmanOutputStream.BLOCK_BYTES);
+        char[] buf = new char[8192];
+        long count = 0;
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            BitWriter bits = new BitWriter(block);
+            for (int i = 0; i < n; i++) {
+                char c = buf[i];
+                int node = leaf(c);
+                int depth = pathTo(node < 0 ? nyt : node);
+                int length = node < 0 ? depth + 16 : depth;
+                if (bits.bitCount() + length > 8L * HuffmanOutputStream.BLOCK_BYTES) {
+                    writeBlock(data, block, bits);
+                    bits = new BitWriter(block);
+                }
+                encode(c, node, depth, bits);
+            }
+            if (bits.bitCount() > 0) {
+                writeBlock(data, block, bits);
+            }
+            data.flush();
+            count += n;
+        }
+        data.writeInt(0);
+        data.flush();
+        return count;
+    }
+
+    private static void writeBlock(DataOutputStream data, ByteBuffer block, BitWriter bits)
+            throws IOException {
+        bits.flush();
+        data.writeInt((int) bits.bitCount());
+        data.write(block.array(), 0, block.position());
+        block.clear();
+    }
+
+    /**
+     * Decompresses blocks written by {@link #compress(Reader, OutputStream)}, writing and flushing
+     * the characters of each block as soon as it arrives. Neither stream is closed.
+     *
+     * @param in  the compressed blocks
+     * @param out where to write the decompressed characters
+     * @return the number of characters decompressed
+     * @throws IllegalArgumentException if either argument is null
+     * @throws IOException              if reading or writing fails, or the compressed stream is
+     *                                  truncated or not decodable
+     */
+    public long decompress(InputStream in, Writer out) throws IOException {
+        if (in == null || out == null) {
+            throw new IllegalArgumentException();
+        }
+        DataInputStream data = new DataInputStream(in);
+        byte[] block = new byte[HuffmanOutputStream.BLOCK_BYTES];
+        long count = 0;
+        int bitCount;
+        while ((bitCount = data.readInt()) != 0) {
+            if (bitCount < 0 || bitCount > 8 * HuffmanOutputStream.BLOCK_BYTES) {
+                throw new IOException("corrupt block header");
+            }
+            int length = (bitCount + 7) / 8;
+            data.readFully(block, 0, length);
+            BitReader bits = new BitReader(ByteBuffer.wrap(block, 0, length), bitCount);
+            try {
+                while (bits.remaining() > 0) {
+                    out.write(decode(bits));
+                    count++;
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("undecodable block", e);
+            }
+            out.flush();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,145 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+public class AdaptiveHuffmanTest {
+
+    private static String randomText(long seed, int length, String alphabet) {
+        Random r = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            // skewed towards the start of the alphabet
+            int k = Math.min(r.nextInt(alphabet.length()), r.nextInt(alphabet.length()));
+            sb.append(alphabet.charAt(k));
+        }
+        return sb.toString();
+    }
+
+    //compress()
+    @Test
+    public void compressFirstCharacterIsRaw() {
+        assertEquals("0000000001100001", new AdaptiveHuffman().compress("a"));
+    }
+
+    @Test
+    public void compressSeenCharacter() {
+        assertEquals("0000000001100001" + "1", new AdaptiveHuffman().compress("aa"));
+    }
+
+    @Test
+    public void compressNewCharacterEscapes() {
+        assertEquals("0000000001100001" + "0" + "0000000001100010",
+                new AdaptiveHuffman().compress("ab"));
+    }
+
+    @Test
+    public void compressContinuesStream() {
+        AdaptiveHuffman ah = new AdaptiveHuffman();
+        assertEquals("0000000001100001", ah.compress("a"));
+        assertEquals("1", ah.compress("a"));
+    }
+
+    @Test
+    public void compressEmpty() {
+        assertEquals("", new AdaptiveHuffman().compress(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressNull() {
+        new AdaptiveHuffman().compress(null);
+    }
+
+    @Test
+    public void compressAdaptsToSkew() {
+        String input = randomText(12, 20000, "etaoinshrdlu");
+        String compressed = new AdaptiveHuffman().compress(input);
+        assertTrue(compressed.length() < input.length() * 4);
+    }
+
+    //decompress()
+    @Test
+    public void roundTrip() {
+        String input = "abracadabra, \u0100\uFFFF and \u0000 too";
+        String compressed = new AdaptiveHuffman().compress(input);
+        assertEquals(input, new AdaptiveHuffman().decompress(compressed));
+    }
+
+    @Test
+    public void roundTripRandom() {
+        Random r = new Random(3);
+        for (int t = 0; t < 20; t++) {
+            StringBuilder sb = new StringBuilder();
+            int alphabet = 1 + r.nextInt(2000);
+            for (int i = r.nextInt(5000); i > 0; i--) {
+                sb.append((char) (r.nextInt(alphabet) * (1 + r.nextInt(3))));
+            }
+            String input = sb.toString();
+            assertEquals(input, new AdaptiveHuffman().decompress(new AdaptiveHuffman().compress(input)));
+        }
+    }
+
+    @Test
+    public void roundTripInPieces() {
+        AdaptiveHuffman encoder = new AdaptiveHuffman();
+        AdaptiveHuffman decoder = new AdaptiveHuffman();
+        for (String piece : new String[]{"hello", " ", "world", "", "hello world"}) {
+            assertEquals(piece, decoder.decompress(encoder.compress(piece)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressTruncated() {
+        String compressed = new AdaptiveHuffman().compress("ab");
+        new AdaptiveHuffman().decompress(compressed.substring(0, compressed.length() - 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressNonBinary() {
+        new AdaptiveHuffman().decompress("0000000001100002");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressNull() {
+        new AdaptiveHuffman().decompress(null);
+    }
+
+    //compress(Reader, OutputStream)
+    @Test
+    public void streamRoundTrip() throws IOException {
+        String input = randomText(7, 300000, "abcdefghijklmnopqrstuvwxyz\u4E00\u4E01");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertEquals(input.length(), new AdaptiveHuffman().compress(new StringReader(input), bytes));
+        byte[] compressed = bytes.toByteArray();
+        assertTrue(compressed.length < input.length());
+
+        StringWriter out = new StringWriter();
+        assertEquals(input.length(), new AdaptiveHuffman().decompress(
+                new ByteArrayInputStream(compressed), out));
+        assertEquals(input, out.toString());
+    }
+
+    @Test
+    public void streamEmpty() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertEquals(0, new AdaptiveHuffman().compress(new StringReader(""), bytes));
+        assertArrayEquals(new byte[]{0, 0, 0, 0}, bytes.toByteArray());
+    }
+
+    @Test(expected = EOFException.class)
+    public void streamTruncated() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new AdaptiveHuffman().compress(new StringReader("abc"), bytes);
+        byte[] compressed = bytes.toByteArray();
+        new AdaptiveHuffman().decompress(
+                new ByteArrayInputStream(Arrays.copyOf(compressed, compressed.length - 4)),
+                new StringWriter());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void streamNull() throws IOException {
+        new AdaptiveHuffman().compress(null, new ByteArrayOutputStream());
+    }
+}
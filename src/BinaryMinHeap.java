@@ -1,3 +1,5 @@
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.NoSuchElementException;
 
@@ -8,8 +10,8 @@ import java.util.NoSuchElementException;
  * Your task will be to implement this abstract class in BinaryMinHeapImpl.java
  * <p>
  * Your constructor should not take in any arguments, and it should initialize an
- * empty heap. You do NOT have to implement build-heap, instead building a heap
- * will be done via mutiple calls to "add()"
+ * empty heap. A heap can be built by multiple calls to "add()", or all at once
+ * with "addAll()", which implementations may do in linear time with build-heap.
  * <p>
  * As always, feel free to add package private fields and helper methods.
  *
@@ -52,6 +54,31 @@ public interface BinaryMinHeap<Key extends Comparable<Key>, V> {
      */
     void add(Key key, V value);
 
+    /**
+     * Inserts all the entries, as if by {@link #add(Comparable, Object)} for each, but
+     * without changing the heap if any entry is rejected.
+     * <p>
+     * Runtime: expected O(n log n); O(n) for implementations that build the heap bottom-up
+     *
+     * @param entries the entries to insert
+     * @throws IllegalArgumentException if entries is null, an entry or its key is null, or a
+     *                                  value is already in the min-heap or repeated in entries
+     */
+    default void addAll(Collection<? extends Entry<Key, V>> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException();
+        }
+        Set<V> seen = new HashSet<>();
+        for (Entry<Key, V> e : entries) {
+            if (e == null || e.key == null || containsValue(e.value) || !seen.add(e.value)) {
+                throw new IllegalArgumentException();
+            }
+        }
+        for (Entry<Key, V> e : entries) {
+            add(e.key, e.value);
+        }
+    }
+
     /**
      * Updates the key of a particular value in the min-heap
      * to a smaller key.
@@ -8,13 +8,54 @@ public class BinaryMinHeapImpl<Key extends Comparable<Key>, V> implements Binary
 
     List<Entry<Key, V>> heap;
     Map<V, Integer> heapIndex;
+    private final HuffmanMetrics metrics;
 
     // heap<Entry<Frequency, Value of Node>>
     // heapIndex<Value of Node, Index in the ArrayList>
 
     public BinaryMinHeapImpl() {
+        this(HuffmanMetrics.NOOP);
+    }
+
+    /**
+     * Creates an empty heap that reports each add, extractMin and decreaseKey to the given
+     * metrics.
+     *
+     * @param metrics where to report operations
+     * @throws IllegalArgumentException if metrics is null
+     */
+    public BinaryMinHeapImpl(HuffmanMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException();
+        }
         heap = new ArrayList<>();
         heapIndex = new HashMap<>();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates a heap holding the given entries, built bottom-up in O(n).
+     *
+     * @param entries the entries to insert
+     * @throws IllegalArgumentException if entries is null, an entry or its key is null, or a
+     *                                  value is repeated
+     */
+    public BinaryMinHeapImpl(Collection<? extends Entry<Key, V>> entries) {
+        this(entries, HuffmanMetrics.NOOP);
+    }
+
+    /**
+     * Creates a heap holding the given entries, built bottom-up in O(n), that reports each add,
+     * extractMin and decreaseKey to the given metrics, starting with one add for each entry.
+     *
+     * @param entries the entries to insert
+     * @param metrics where to report operations
+     * @throws IllegalArgumentException if entries or metrics is null, an entry or its key is null,
+     *                                  or a value is repeated
+     */
+    public BinaryMinHeapImpl(Collection<? extends Entry<Key, V>> entries, HuffmanMetrics metrics) {
+        this(metrics);
+        heapify(entries);
     }
 
     public List<Entry<Key, V>> getHeap() {
@@ -58,9 +99,48 @@ public class BinaryMinHeapImpl<Key extends Comparable<Key>, V> implements Binary
             throw new IllegalArgumentException();
         }
 
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.ADD);
         heapIndex.put(value, size());
         heap.add(new Entry<>(key, value));
-        decreaseKey(value, key);
+        siftUp(value, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Appends the entries and then restores the heap property with Floyd's build-heap, sifting
+     * down every parent from the last one up to the root, in O(n + m) for m entries added to n.
+     * The resulting layout, and so the order in which equal keys come out, can differ from adding
+     * the entries one at a time.
+     */
+    @Override
+    public void addAll(Collection<? extends Entry<Key, V>> entries) {
+        heapify(entries);
+    }
+
+    // called from a constructor, so touches only fields and private methods
+    private void heapify(Collection<? extends Entry<Key, V>> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException();
+        }
+        int before = heap.size();
+        for (Entry<Key, V> e : entries) {
+            if (e == null || e.key == null || heapIndex.containsKey(e.value)) {
+                // undo the entries appended so far, leaving the heap as it was
+                while (heap.size() > before) {
+                    heapIndex.remove(heap.remove(heap.size() - 1).value);
+                }
+                throw new IllegalArgumentException();
+            }
+            heapIndex.put(e.value, heap.size());
+            heap.add(e);
+        }
+        for (int i = before; i < heap.size(); i++) {
+            metrics.heapOperation(HuffmanMetrics.HeapOperation.ADD);
+        }
+        for (int i = heap.size() / 2 - 1; i >= 0; i--) {
+            minHeapify(i);
+        }
     }
 
     /**
@@ -77,6 +157,11 @@ public class BinaryMinHeapImpl<Key extends Comparable<Key>, V> implements Binary
         if (newKey.compareTo(heap.get(heapIndex.get(value)).key) > 0) {
             throw new IllegalArgumentException();
         }
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.DECREASE_KEY);
+        siftUp(value, newKey);
+    }
+
+    private void siftUp(V value, Key newKey) {
         int newIndex = heapIndex.get(value);
         Entry<Key, V> entry = new Entry<>(newKey, value);
         heapIndex.replace(value, newIndex);
@@ -143,6 +228,7 @@ public class BinaryMinHeapImpl<Key extends Comparable<Key>, V> implements Binary
             throw new NoSuchElementException();
         }
 
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.EXTRACT_MIN);
         Entry<Key, V> removedEntry = heap.get(0);
         heapIndex.remove(heap.get(0).value);
 
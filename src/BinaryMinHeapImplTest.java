@@ -235,6 +235,81 @@ public class BinaryMinHeapImplTest<Key extends Comparable<Key>, V> {
         bmhi.add(7, 4);
     }
 
+    //addAll()
+    @Test
+    public void addAllMapExample() {
+        BinaryMinHeapImpl<Integer, Integer> bmhi = new BinaryMinHeapImpl<>();
+        bmhi.addAll(Arrays.asList(new BinaryMinHeap.Entry<>(8, 4),
+                new BinaryMinHeap.Entry<>(5, 1), new BinaryMinHeap.Entry<>(3, 7)));
+
+        assertEquals(0, (int) bmhi.getHeapIndex().get(7));
+        assertEquals(1, (int) bmhi.getHeapIndex().get(1));
+        assertEquals(2, (int) bmhi.getHeapIndex().get(4));
+    }
+
+    @Test
+    public void addAllHeapOrder() {
+        Random r = new Random(121);
+        List<BinaryMinHeap.Entry<Integer, Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            entries.add(new BinaryMinHeap.Entry<>(r.nextInt(100), i));
+        }
+        BinaryMinHeapImpl<Integer, Integer> bmhi = new BinaryMinHeapImpl<>();
+        bmhi.add(50, -1);
+        bmhi.addAll(entries);
+
+        assertEquals(501, bmhi.size());
+        for (int i = 0; i < bmhi.size(); i++) {
+            assertEquals(i, (int) bmhi.getHeapIndex().get(bmhi.getHeap().get(i).value));
+            if (i > 0) {
+                assertTrue(bmhi.getHeap().get((i - 1) / 2).key <= bmhi.getHeap().get(i).key);
+            }
+        }
+        int last = Integer.MIN_VALUE;
+        while (!bmhi.isEmpty()) {
+            int key = bmhi.extractMin().key;
+            assertTrue(last <= key);
+            last = key;
+        }
+    }
+
+    @Test
+    public void addAllConstructor() {
+        BinaryMinHeapImpl<Integer, String> bmhi = new BinaryMinHeapImpl<>(Arrays.asList(
+                new BinaryMinHeap.Entry<>(2, "b"), new BinaryMinHeap.Entry<>(1, "a")));
+        assertEquals("a", bmhi.extractMin().value);
+        assertEquals("b", bmhi.extractMin().value);
+    }
+
+    @Test
+    public void addAllConstructorMetrics() {
+        HuffmanMetricsRecorder recorder = new HuffmanMetricsRecorder();
+        BinaryMinHeapImpl<Integer, String> bmhi = new BinaryMinHeapImpl<>(Arrays.asList(
+                new BinaryMinHeap.Entry<>(2, "b"), new BinaryMinHeap.Entry<>(1, "a")), recorder);
+        assertEquals("a", bmhi.extractMin().value);
+        assertEquals(2, recorder.heapOperations(HuffmanMetrics.HeapOperation.ADD));
+        assertEquals(1, recorder.heapOperations(HuffmanMetrics.HeapOperation.EXTRACT_MIN));
+    }
+
+    @Test
+    public void addAllRepeatedValueUnchanged() {
+        BinaryMinHeapImpl<Integer, Integer> bmhi = new BinaryMinHeapImpl<>();
+        bmhi.add(3, 7);
+        try {
+            bmhi.addAll(Arrays.asList(new BinaryMinHeap.Entry<>(1, 4),
+                    new BinaryMinHeap.Entry<>(2, 4)));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, bmhi.size());
+            assertFalse(bmhi.containsValue(4));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addAllNull() {
+        new BinaryMinHeapImpl<Integer, Integer>().addAll(null);
+    }
+
     //extractMin()
     @Test
     public void extractMinOneMapExample() {
@@ -0,0 +1,91 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads packed bits from a {@link ByteBuffer}, most significant bit first, the counterpart of
+ * {@link BitWriter}. Callers {@link #peek()} at a window of upcoming bits and then {@link
+ * #skip(int)} however many of them they used.
+ */
+class BitReader {
+
+    /**
+     * The number of bits {@link #peek()} guarantees to be valid, as long as that many remain.
+     */
+    static final int WINDOW_BITS = 57;
+
+    private final ByteBuffer in;
+    private final boolean bigEndian;
+    private long window;
+    private int bits;
+    private long remaining;
+
+    // window holds the next bits left-aligned, bits is how many of them have been read from in,
+    // remaining is how many bits are left before the end of the input
+
+    BitReader(ByteBuffer in, long bitLength) {
+        this.in = in;
+        bigEndian = in.order() == ByteOrder.BIG_ENDIAN;
+        remaining = bitLength;
+    }
+
+    /**
+     * Packs a string of binary digits into bytes, most significant bit first, with the last byte
+     * padded with zeroes.
+     *
+     * @param digits the bits, as the characters 0 and 1
+     * @return the packed bits, {@code digits.length()} of them
+     * @throws IllegalArgumentException if any character is not 0 or 1
+     */
+    static byte[] pack(String digits) {
+        byte[] packed = new byte[(digits.length() + 7) / 8];
+        for (int i = 0; i < digits.length(); i++) {
+            int bit = digits.charAt(i) - '0';
+            if (bit < 0 || bit > 1) {
+                throw new IllegalArgumentException();
+            }
+            packed[i >>> 3] = (byte) (packed[i >>> 3] | bit << (7 - (i & 7)));
+        }
+        return packed;
+    }
+
+    /**
+     * @return the next 64 bits of input, left-aligned; bits past the end of the input are
+     * unspecified
+     */
+    long peek() {
+        if (bits < WINDOW_BITS) {
+            refill();
+        }
+        return window;
+    }
+
+    /**
+     * Consumes bits previously returned by {@link #peek()}.
+     *
+     * @param n the number of bits to consume, at most {@link #WINDOW_BITS}
+     */
+    void skip(int n) {
+        window <<= n;
+        bits -= n;
+        remaining -= n;
+    }
+
+    /**
+     * @return the number of bits left to read
+     */
+    long remaining() {
+        return remaining;
+    }
+
+    private void refill() {
+        if (bits == 0 && in.remaining() >= 8) {
+            window = bigEndian ? in.getLong() : Long.reverseBytes(in.getLong());
+            bits = 64;
+            return;
+        }
+        while (bits <= 56 && in.hasRemaining()) {
+            window |= (in.get() & 0xFFL) << (56 - bits);
+            bits += 8;
+        }
+    }
+}
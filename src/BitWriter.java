@@ -0,0 +1,66 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Packs variable-length codes into a {@link ByteBuffer}, most significant bit first. Bits are
+ * collected in a 64-bit accumulator and written out eight bytes at a time; {@link #flush()} writes
+ * the last partial accumulator, padding its final byte with zeroes.
+ */
+class BitWriter {
+
+    private final ByteBuffer out;
+    private final boolean bigEndian;
+    private long acc;
+    private int free = 64;
+    private long bitCount;
+
+    // acc holds pending bits left-aligned, free is the number of unused low bits (1 to 64)
+
+    BitWriter(ByteBuffer out) {
+        this.out = out;
+        bigEndian = out.order() == ByteOrder.BIG_ENDIAN;
+    }
+
+    /**
+     * Appends the low {@code length} bits of {@code code}.
+     *
+     * @param code   the bits to write, right-aligned with no bits set above {@code length}
+     * @param length the number of bits to write, between 0 and 64
+     */
+    void write(long code, int length) {
+        bitCount += length;
+        if (length < free) {
+            acc |= code << (free - length);
+            free -= length;
+        } else {
+            int leftover = length - free;
+            putLong(acc | (code >>> leftover));
+            acc = leftover == 0 ? 0 : code << (64 - leftover);
+            free = 64 - leftover;
+        }
+    }
+
+    /**
+     * Writes any pending bits, padding the last byte with zeroes. The writer can keep being used
+     * afterwards and will start on a fresh byte.
+     */
+    void flush() {
+        for (int used = 64 - free; used > 0; used -= 8) {
+            out.put((byte) (acc >>> 56));
+            acc <<= 8;
+        }
+        acc = 0;
+        free = 64;
+    }
+
+    /**
+     * @return the number of bits written so far, not counting padding
+     */
+    long bitCount() {
+        return bitCount;
+    }
+
+    private void putLong(long bits) {
+        out.putLong(bigEndian ? bits : Long.reverseBytes(bits));
+    }
+}
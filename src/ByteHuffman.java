@@ -0,0 +1,265 @@
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Huffman coding over the 256 byte values, for binary payloads that are not text. Each byte is
+ * coded as the character of the same unsigned value by an underlying {@link Huffman} codebook, so
+ * tree construction, canonical headers and {@link #expectedEncodingLength()} all work exactly as
+ * they do for characters, but input and output stay in {@code byte[]} and {@link ByteBuffer}.
+ * Bytes not in the given seed or frequencies are not compressible. Like {@code Huffman}, an
+ * instance can be shared between threads.
+ */
+public class ByteHuffman {
+
+    private final Huffman huffman;
+    private final long[] codes = new long[256];
+    private final int[] lengths = new int[256];
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder outputBits = new LongAdder();
+
+    /**
+     * Constructs a {@code ByteHuffman} instance from a seed, from which to deduce the byte
+     * frequencies.
+     *
+     * @param seed the bytes from which to build the encoding
+     * @throws IllegalArgumentException if the seed is null, or has fewer than 2 distinct bytes
+     */
+    public ByteHuffman(byte[] seed) {
+        this(histogram(seed));
+    }
+
+    /**
+     * Constructs a {@code ByteHuffman} instance from byte frequencies.
+     *
+     * @param frequencies the frequency of each unsigned byte value, 0 for bytes that are not
+     *                    compressible
+     * @throws IllegalArgumentException if frequencies is null, does not have 256 entries, has
+     *                                  negative entries or fewer than 2 positive ones
+     */
+    public ByteHuffman(int[] frequencies) {
+        this(new Huffman(alphabetOf(frequencies)));
+    }
+
+    /**
+     * Wraps an existing codebook, such as one rebuilt by {@link Huffman#fromHeader(ByteBuffer)}.
+     *
+     * @param huffman a codebook whose characters are all below 256
+     * @throws IllegalArgumentException if huffman is null or codes a character above 255
+     */
+    public ByteHuffman(Huffman huffman) {
+        if (huffman == null) {
+            throw new IllegalArgumentException();
+        }
+        int count = 0;
+        for (char c = 0; c < 256; c++) {
+            lengths[c] = huffman.codeLength(c);
+            if (lengths[c] > 0) {
+                codes[c] = huffman.code(c);
+                count++;
+            }
+        }
+        if (count != huffman.alphabetSize()) {
+            throw new IllegalArgumentException();
+        }
+        this.huffman = huffman;
+    }
+
+    private static int[] histogram(byte[] seed) {
+        if (seed == null) {
+            throw new IllegalArgumentException();
+        }
+        int[] counts = new int[256];
+        for (byte b : seed) {
+            counts[b & 0xFF]++;
+        }
+        return counts;
+    }
+
+    private static Map<Character, Integer> alphabetOf(int[] frequencies) {
+        if (frequencies == null || frequencies.length != 256) {
+            throw new IllegalArgumentException();
+        }
+        Map<Character, Integer> alphabet = new HashMap<>();
+        for (char c = 0; c < 256; c++) {
+            if (frequencies[c] < 0) {
+                throw new IllegalArgumentException();
+            }
+            if (frequencies[c] > 0) {
+                alphabet.put(c, frequencies[c]);
+            }
+        }
+        return alphabet;
+    }
+
+    /**
+     * @return the character codebook behind this one, for instance to share its header
+     */
+    public Huffman getHuffman() {
+        return huffman;
+    }
+
+    private long encodedLength(ByteBuffer input) {
+        long bits = 0;
+        for (int i = input.position(); i < input.limit(); i++) {
+            int length = lengths[input.get(i) & 0xFF];
+            if (length == 0) {
+                throw new IllegalArgumentException();
+            }
+            bits += length;
+        }
+        return bits;
+    }
+
+    private void encode(ByteBuffer input, ByteBuffer dst, long bits) {
+        inputBytes.add(input.remaining());
+        BitWriter out = new BitWriter(dst);
+        while (input.hasRemaining()) {
+            int b = input.get() & 0xFF;
+            out.write(codes[b], lengths[b]);
+        }
+        out.flush();
+        outputBits.add(bits);
+    }
+
+    /**
+     * Compresses the input into packed bits, most significant bit first, with the last byte
+     * padded with zeroes.
+     *
+     * @param input the bytes to compress, can be empty
+     * @return the packed binary encoding of the input
+     * @throws IllegalArgumentException if the input is null or contains bytes that are not
+     *                                  compressible
+     */
+    public byte[] compress(byte[] input) {
+        if (input == null) {
+            throw new IllegalArgumentException();
+        }
+        ByteBuffer src = ByteBuffer.wrap(input);
+        long bits = encodedLength(src);
+        if ((bits + 7) / 8 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        byte[] output = new byte[(int) ((bits + 7) / 8)];
+        encode(src, ByteBuffer.wrap(output), bits);
+        return output;
+    }
+
+    /**
+     * Compresses the remaining bytes of {@code src} into packed bits written at the position of
+     * {@code dst}, advancing both. Nothing is read or written if the input is not compressible or
+     * the destination is too small.
+     *
+     * @param src the bytes to compress
+     * @param dst the buffer to write to
+     * @return the number of bits written, not counting padding
+     * @throws IllegalArgumentException if either buffer is null, or the input contains bytes that
+     *                                  are not compressible
+     * @throws BufferOverflowException  if {@code dst} does not have enough remaining space
+     */
+    public long compressTo(ByteBuffer src, ByteBuffer dst) {
+        if (src == null || dst == null) {
+            throw new IllegalArgumentException();
+        }
+        long bits = encodedLength(src);
+        if (dst.remaining() < (bits + 7) / 8) {
+            throw new BufferOverflowException();
+        }
+        encode(src, dst, bits);
+        return bits;
+    }
+
+    /**
+     * Decompresses packed bits produced by {@link #compress(byte[])}.
+     *
+     * @param input     the packed bits, most significant bit first
+     * @param bitLength the number of bits of input to decode, ignoring any padding
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the input is null, the bit length is negative or longer
+     *                                  than the input, or the bits are not decodable
+     */
+    public byte[] decompress(byte[] input, long bitLength) {
+        if (input == null || bitLength < 0 || bitLength > 8L * input.length) {
+            throw new IllegalArgumentException();
+        }
+        byte[] output = new byte[64];
+        int size = 0;
+        BitReader in = new BitReader(ByteBuffer.wrap(input), bitLength);
+        DecodeTable decodeTable = huffman.getDecodeTable();
+        while (in.remaining() > 0) {
+            int entry = decodeTable.decode(in.peek());
+            int length = entry & 0xFF;
+            if (entry == 0 || length > in.remaining()) {
+                throw new IllegalArgumentException();
+            }
+            in.skip(length);
+            if (size == output.length) {
+                output = Arrays.copyOf(output, size * 2);
+            }
+            output[size++] = (byte) (entry >>> 8);
+        }
+        return Arrays.copyOf(output, size);
+    }
+
+    /**
+     * Decompresses {@code bitLength} bits from the position of {@code src} into {@code dst},
+     * advancing both; {@code src} is left just past the byte holding the last bit.
+     *
+     * @param src       the packed bits, most significant bit first
+     * @param bitLength the number of bits to decode, ignoring any padding
+     * @param dst       the buffer to write decoded bytes to
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if either buffer is null, the bit length is negative or
+     *                                  longer than {@code src}, or the bits are not decodable
+     * @throws BufferOverflowException  if {@code dst} fills up before the input is decoded
+     */
+    public int decompressTo(ByteBuffer src, long bitLength, ByteBuffer dst) {
+        if (src == null || dst == null || bitLength < 0 || bitLength > 8L * src.remaining()) {
+            throw new IllegalArgumentException();
+        }
+        ByteBuffer bytes = src.slice();
+        bytes.limit((int) ((bitLength + 7) / 8));
+        BitReader in = new BitReader(bytes, bitLength);
+        DecodeTable decodeTable = huffman.getDecodeTable();
+        int start = dst.position();
+        while (in.remaining() > 0) {
+            int entry = decodeTable.decode(in.peek());
+            int length = entry & 0xFF;
+            if (entry == 0 || length > in.remaining()) {
+                throw new IllegalArgumentException();
+            }
+            in.skip(length);
+            dst.put((byte) (entry >>> 8));
+        }
+        src.position(src.position() + bytes.limit());
+        return dst.position() - start;
+    }
+
+    /**
+     * Computes the compression ratio so far: the number of bits output by {@link
+     * #compress(byte[])} and {@link #compressTo(ByteBuffer, ByteBuffer)} divided by the number of
+     * bits they were given, 8 per byte.
+     *
+     * @return the ratio of the total output length to the total input length in bits
+     * @throws IllegalStateException if nothing has been compressed yet
+     */
+    public double compressionRatio() {
+        long bytes = inputBytes.sum();
+        if (bytes == 0) {
+            throw new IllegalStateException();
+        }
+        return (double) outputBits.sum() / (bytes * 8.0);
+    }
+
+    /**
+     * Computes the expected encoding length of an arbitrary byte, the sum of the length of each
+     * byte's code multiplied by the probability that byte occurs.
+     *
+     * @return the expected encoding length in bits
+     * @throws IllegalStateException if the frequencies are unknown
+     */
+    public double expectedEncodingLength() {
+        return huffman.expectedEncodingLength();
+    }
+}
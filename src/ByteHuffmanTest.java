@@ -0,0 +1,120 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class ByteHuffmanTest {
+    private byte[] seed;
+    private byte[] payload;
+
+    @Before
+    public void setUpByteHuffmanTest() {
+        seed = new byte[]{1, 1, 2, 2, 2, 2, -1, 3, 1, 3, 0};
+        payload = new byte[5000];
+        Random r = new Random(121);
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) (r.nextGaussian() * 20);
+        }
+    }
+
+    //ByteHuffman()
+    @Test
+    public void byteHuffmanSeedMatchesCharHuffman() {
+        ByteHuffman bh = new ByteHuffman(seed);
+        Huffman hf = new Huffman("\u0001\u0001\u0002\u0002\u0002\u0002\u00FF\u0003\u0001\u0003\u0000");
+        assertEquals(hf.expectedEncodingLength(), bh.expectedEncodingLength(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void byteHuffmanNullSeed() {
+        new ByteHuffman((byte[]) null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void byteHuffmanOneByteSeed() {
+        new ByteHuffman(new byte[]{7, 7, 7});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void byteHuffmanShortFrequencies() {
+        new ByteHuffman(new int[255]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void byteHuffmanCharCodebook() {
+        new ByteHuffman(new Huffman("ab\u0100"));
+    }
+
+    @Test
+    public void byteHuffmanFromHeader() {
+        ByteHuffman sender = new ByteHuffman(new ByteHuffman(payload).getHuffman().toCanonical());
+        ByteHuffman receiver = new ByteHuffman(
+                Huffman.fromHeader(sender.getHuffman().getHeader()));
+        byte[] compressed = sender.compress(payload);
+        assertArrayEquals(compressed, receiver.compress(payload));
+    }
+
+    //compress() and decompress()
+    @Test
+    public void compressDecompress() {
+        ByteHuffman bh = new ByteHuffman(payload);
+        byte[] compressed = bh.compress(payload);
+        long bits = (long) (bh.compressionRatio() * payload.length * 8);
+
+        assertTrue(compressed.length < payload.length);
+        assertEquals((bits + 7) / 8, compressed.length);
+        assertArrayEquals(payload, bh.decompress(compressed, bits));
+    }
+
+    @Test
+    public void compressEmpty() {
+        ByteHuffman bh = new ByteHuffman(seed);
+        assertEquals(0, bh.compress(new byte[0]).length);
+        assertEquals(0, bh.decompress(new byte[0], 0).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressIncompressible() {
+        new ByteHuffman(seed).compress(new byte[]{1, 4});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressNonDecodable() {
+        ByteHuffman bh = new ByteHuffman(seed);
+        byte[] compressed = bh.compress(seed);
+        bh.decompress(compressed, 8L * compressed.length - 1);
+    }
+
+    //compressTo() and decompressTo()
+    @Test
+    public void compressToDecompressTo() {
+        ByteHuffman bh = new ByteHuffman(payload);
+        ByteBuffer src = ByteBuffer.wrap(payload);
+        ByteBuffer packed = ByteBuffer.allocateDirect(payload.length);
+        long bits = bh.compressTo(src, packed);
+        assertFalse(src.hasRemaining());
+        assertEquals((bits + 7) / 8, packed.position());
+
+        packed.flip();
+        ByteBuffer out = ByteBuffer.allocate(payload.length);
+        assertEquals(payload.length, bh.decompressTo(packed, bits, out));
+        assertFalse(packed.hasRemaining());
+        assertArrayEquals(payload, out.array());
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void compressToTooSmall() {
+        ByteHuffman bh = new ByteHuffman(seed);
+        bh.compressTo(ByteBuffer.wrap(seed), ByteBuffer.allocate(1));
+    }
+
+    //compressionRatio()
+    @Test(expected = IllegalStateException.class)
+    public void compressionRatioNoCallBefore() {
+        new ByteHuffman(seed).compressionRatio();
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * A Huffman tree kept in parallel arrays rather than as linked node objects. Leaves are numbered
+ * {@code 0} to {@code n - 1} in the order they are added and internal nodes {@code n} to
+ * {@code 2n - 2} in the order they are merged, so the last node merged is the root. Only leaves
+ * have a symbol and only internal nodes have children, so those arrays hold just their own kind
+ * of node.
+ * <p>
+ * The tree takes about 18 bytes per character of the alphabet, 2 for its symbol, 8 for the
+ * children of one internal node and 8 for the frequencies of two nodes, against the several
+ * objects and the concatenated subtree strings that each node used to carry.
+ */
+class CodeTree {
+
+    private final int leafCount;
+    private final char[] symbol;
+    private final int[] left;
+    private final int[] right;
+    private final int[] freq;
+    private int leaves;
+    private int merged;
+
+    /**
+     * @param leafCount the number of characters in the alphabet, at least 2
+     * @throws IllegalArgumentException if there are fewer than 2 characters
+     */
+    CodeTree(int leafCount) {
+        if (leafCount < 2) {
+            throw new IllegalArgumentException();
+        }
+        this.leafCount = leafCount;
+        symbol = new char[leafCount];
+        left = new int[leafCount - 1];
+        right = new int[leafCount - 1];
+        freq = new int[2 * leafCount - 1];
+    }
+
+    /**
+     * Adds a leaf.
+     *
+     * @return the new leaf's node number
+     * @throws IllegalStateException if all leaves have been added
+     */
+    int leaf(char c, int frequency) {
+        if (leaves == leafCount) {
+            throw new IllegalStateException();
+        }
+        symbol[leaves] = c;
+        freq[leaves] = frequency;
+        return leaves++;
+    }
+
+    /**
+     * Adds an internal node whose frequency is the sum of its children's.
+     *
+     * @param l the node number of the left child, whose codes continue with 0
+     * @param r the node number of the right child, whose codes continue with 1
+     * @return the new node's number
+     * @throws IllegalStateException if all internal nodes have been added
+     */
+    int merge(int l, int r) {
+        if (merged == leafCount - 1) {
+            throw new IllegalStateException();
+        }
+        left[merged] = l;
+        right[merged] = r;
+        int node = leafCount + merged++;
+        freq[node] = freq[l] + freq[r];
+        return node;
+    }
+
+    /**
+     * @return the node number of the root, once every internal node has been added
+     */
+    int root() {
+        return 2 * leafCount - 2;
+    }
+
+    /**
+     * @return the number of nodes, leaves and internal
+     */
+    int size() {
+        return 2 * leafCount - 1;
+    }
+
+    boolean isLeaf(int node) {
+        return node < leafCount;
+    }
+
+    /**
+     * @return the character at a leaf
+     */
+    char symbol(int node) {
+        return symbol[node];
+    }
+
+    /**
+     * @return the left child of an internal node
+     */
+    int left(int node) {
+        return left[node - leafCount];
+    }
+
+    /**
+     * @return the right child of an internal node
+     */
+    int right(int node) {
+        return right[node - leafCount];
+    }
+
+    int freq(int node) {
+        return freq[node];
+    }
+
+    /**
+     * @return the characters at the leaves under a node, from left to right
+     */
+    String symbols(int node) {
+        StringBuilder sb = new StringBuilder();
+        int[] stack = new int[size()];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int n = stack[--top];
+            if (isLeaf(n)) {
+                sb.append(symbol[n]);
+            } else {
+                stack[top++] = right(n);
+                stack[top++] = left(n);
+            }
+        }
+        return sb.toString();
+    }
+}
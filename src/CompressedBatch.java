@@ -0,0 +1,88 @@
+/**
+ * Many messages compressed back to back into one bit buffer by {@link
+ * Huffman#compressBatch(java.util.List)}, with an index of where each message starts. Message
+ * {@code i} occupies bits {@code [bitOffset(i), bitOffset(i + 1))}, counted from the most
+ * significant bit of the first word, and messages are not padded, so they need not start on a
+ * word or byte boundary.
+ * <p>
+ * The arrays are shared, not copied, so that a batch can be built from and written to the wire
+ * without extra copies; they must not be changed once the batch is in use.
+ */
+public final class CompressedBatch {
+
+    private final long[] words;
+    private final long[] offsets;
+
+    /**
+     * Wraps compressed words and their index, for instance after receiving them.
+     *
+     * @param words   the packed bits, each word filled from its most significant bit
+     * @param offsets the bit offset of each message followed by the total number of bits, so one
+     *                longer than the number of messages and starting with 0
+     * @throws IllegalArgumentException if either array is null, the offsets do not start with 0,
+     *                                  decrease, or run past the end of the words
+     */
+    public CompressedBatch(long[] words, long[] offsets) {
+        if (words == null || offsets == null || offsets.length == 0 || offsets[0] != 0
+                || offsets[offsets.length - 1] > 64L * words.length) {
+            throw new IllegalArgumentException();
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) {
+                throw new IllegalArgumentException();
+            }
+        }
+        this.words = words;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @return the number of messages
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @param i the index of a message, or {@link #size()} for the end of the last message
+     * @return the bit offset at which the message starts
+     * @throws IndexOutOfBoundsException if i is negative or more than {@link #size()}
+     */
+    public long bitOffset(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * @param i the index of a message
+     * @return the number of bits the message was compressed to
+     * @throws IndexOutOfBoundsException if i is not the index of a message
+     */
+    public long bitLength(int i) {
+        if (i >= size()) {
+            throw new IndexOutOfBoundsException();
+        }
+        return offsets[i + 1] - offsets[i];
+    }
+
+    /**
+     * @return the number of bits in all messages
+     */
+    public long totalBits() {
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     * @return the packed bits, the array itself
+     */
+    public long[] words() {
+        return words;
+    }
+
+    /**
+     * @return the bit offsets of the messages followed by the total number of bits, the array
+     * itself
+     */
+    public long[] offsets() {
+        return offsets;
+    }
+}
@@ -0,0 +1,256 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe min-heap for many producers and consumers, without a global lock. Entries are
+ * nodes in a {@link ConcurrentSkipListSet} ordered by key and then by insertion, so equal keys
+ * come out first in, first out, and a {@link ConcurrentHashMap} maps each value to its current
+ * node.
+ * <p>
+ * Each node is claimed exactly once, by a compare-and-set, either by the {@link #extractMin()}
+ * that removes it or by the {@link #decreaseKey(Object, Comparable)} that replaces it with a node
+ * for the smaller key. So a value is extracted at most once per add, and a decreaseKey racing an
+ * extraction of the same value either takes effect before it or throws {@link
+ * NoSuchElementException}. A consumer that polls a node whose key is being decreased skips it and
+ * takes the next one, and the replacement node is extracted later by its new key.
+ * <p>
+ * {@link #size()} and {@link #values()} are exact only while no other thread changes the heap.
+ * Use {@link #poll()} rather than {@link #isEmpty()} followed by {@link #extractMin()}, which can
+ * race with other consumers.
+ *
+ * @param <V>   {@inheritDoc}
+ * @param <Key> {@inheritDoc}
+ */
+public class ConcurrentMinHeap<Key extends Comparable<Key>, V> implements BinaryMinHeap<Key, V> {
+
+    // stands in for a null value, which ConcurrentHashMap cannot hold
+    private static final Object NULL = new Object();
+
+    private final ConcurrentSkipListSet<Node<Key, V>> nodes = new ConcurrentSkipListSet<>();
+    private final ConcurrentMap<Object, Node<Key, V>> index = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final HuffmanMetrics metrics;
+
+    private static final class Node<Key extends Comparable<Key>, V>
+            implements Comparable<Node<Key, V>> {
+        final Key key;
+        final V value;
+        final long seq;
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        Node(Key key, V value, long seq) {
+            this.key = key;
+            this.value = value;
+            this.seq = seq;
+        }
+
+        boolean claim() {
+            return !claimed.get() && claimed.compareAndSet(false, true);
+        }
+
+        @Override
+        public int compareTo(Node<Key, V> o) {
+            int c = key.compareTo(o.key);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    public ConcurrentMinHeap() {
+        this(HuffmanMetrics.NOOP);
+    }
+
+    /**
+     * Creates an empty heap that reports each add, extractMin and decreaseKey to the given
+     * metrics, which must be thread-safe.
+     *
+     * @param metrics where to report operations
+     * @throws IllegalArgumentException if metrics is null
+     */
+    public ConcurrentMinHeap(HuffmanMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException();
+        }
+        this.metrics = metrics;
+    }
+
+    private static Object wrap(Object value) {
+        return value == null ? NULL : value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsValue(V value) {
+        return index.containsKey(wrap(value));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: expected O(log n)
+     */
+    @Override
+    public void add(Key key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException();
+        }
+        Node<Key, V> node = new Node<>(key, value, sequence.getAndIncrement());
+        if (index.putIfAbsent(wrap(value), node) != null) {
+            throw new IllegalArgumentException();
+        }
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.ADD);
+        nodes.add(node);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If another thread adds one of the values meanwhile, the entries already added are removed
+     * again before the exception is thrown, but other threads may have extracted them in between.
+     */
+    @Override
+    public void addAll(Collection<? extends Entry<Key, V>> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException();
+        }
+        for (Entry<Key, V> e : entries) {
+            if (e == null || e.key == null) {
+                throw new IllegalArgumentException();
+            }
+        }
+        List<Node<Key, V>> added = new ArrayList<>(entries.size());
+        for (Entry<Key, V> e : entries) {
+            Node<Key, V> node = new Node<>(e.key, e.value, sequence.getAndIncrement());
+            if (index.putIfAbsent(wrap(e.value), node) != null) {
+                for (Node<Key, V> undo : added) {
+                    if (undo.claim()) {
+                        nodes.remove(undo);
+                        index.remove(wrap(undo.value), undo);
+                    }
+                }
+                throw new IllegalArgumentException();
+            }
+            added.add(node);
+        }
+        for (Node<Key, V> node : added) {
+            metrics.heapOperation(HuffmanMetrics.HeapOperation.ADD);
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: expected O(log n)
+     */
+    @Override
+    public void decreaseKey(V value, Key newKey) {
+        if (newKey == null) {
+            if (!containsValue(value)) {
+                throw new NoSuchElementException();
+            }
+            throw new IllegalArgumentException();
+        }
+        Object wrapped = wrap(value);
+        while (true) {
+            Node<Key, V> node = index.get(wrapped);
+            if (node == null) {
+                throw new NoSuchElementException();
+            }
+            if (newKey.compareTo(node.key) > 0) {
+                throw new IllegalArgumentException();
+            }
+            if (node.claim()) {
+                Node<Key, V> decreased = new Node<>(newKey, value, sequence.getAndIncrement());
+                index.replace(wrapped, node, decreased);
+                nodes.remove(node);
+                nodes.add(decreased);
+                metrics.heapOperation(HuffmanMetrics.HeapOperation.DECREASE_KEY);
+                return;
+            }
+            // extracted or decreased by another thread; look again
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: O(1), plus any nodes being replaced by a concurrent decreaseKey
+     */
+    @Override
+    public Entry<Key, V> peek() {
+        for (Node<Key, V> node : nodes) {
+            if (!node.claimed.get()) {
+                return new Entry<>(node.key, node.value);
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: expected O(log n)
+     */
+    @Override
+    public Entry<Key, V> extractMin() {
+        Entry<Key, V> min = poll();
+        if (min == null) {
+            throw new NoSuchElementException();
+        }
+        return min;
+    }
+
+    /**
+     * Removes the value with the smallest key, if any, atomically with finding it.
+     * <p>
+     * Runtime: expected O(log n)
+     *
+     * @return the entry removed, or null if the heap is empty
+     */
+    public Entry<Key, V> poll() {
+        Node<Key, V> node;
+        while ((node = nodes.pollFirst()) != null) {
+            if (node.claim()) {
+                index.remove(wrap(node.value), node);
+                metrics.heapOperation(HuffmanMetrics.HeapOperation.EXTRACT_MIN);
+                return new Entry<>(node.key, node.value);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns a snapshot rather than a view.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<V> values() {
+        Set<V> values = new HashSet<>();
+        for (Object value : index.keySet()) {
+            values.add(value == NULL ? null : (V) value);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,238 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentMinHeapTest {
+
+    //add()
+    @Test
+    public void addPeekSmallest() {
+        ConcurrentMinHeap<Integer, String> heap = new ConcurrentMinHeap<>();
+        heap.add(5, "a");
+        heap.add(3, "b");
+        heap.add(8, "c");
+        assertEquals(3, (int) heap.peek().key);
+        assertEquals("b", heap.peek().value);
+        assertEquals(3, heap.size());
+    }
+
+    @Test
+    public void addEqualKeysFirstInFirstOut() {
+        ConcurrentMinHeap<Integer, String> heap = new ConcurrentMinHeap<>();
+        heap.add(1, "a");
+        heap.add(1, "b");
+        heap.add(0, "c");
+        heap.add(1, "d");
+        assertEquals("c", heap.extractMin().value);
+        assertEquals("a", heap.extractMin().value);
+        assertEquals("b", heap.extractMin().value);
+        assertEquals("d", heap.extractMin().value);
+    }
+
+    @Test
+    public void addNullValue() {
+        ConcurrentMinHeap<Integer, String> heap = new ConcurrentMinHeap<>();
+        heap.add(2, "a");
+        heap.add(1, null);
+        assertTrue(heap.containsValue(null));
+        assertTrue(heap.values().contains(null));
+        heap.decreaseKey(null, 0);
+        assertNull(heap.extractMin().value);
+        assertFalse(heap.containsValue(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addNullKey() {
+        new ConcurrentMinHeap<Integer, String>().add(null, "a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addExistingValue() {
+        ConcurrentMinHeap<Integer, String> heap = new ConcurrentMinHeap<>();
+        heap.add(1, "a");
+        heap.add(2, "a");
+    }
+
+    @Test
+    public void addAfterExtract() {
+        ConcurrentMinHeap<Integer, String> heap = new ConcurrentMinHeap<>();
+        heap.add(1, "a");
+        heap.extractMin();
+        heap.add(2, "a");
+        assertEquals(2, (int) heap.peek().key);
+    }
+
+    @Test
+    public void addConcurrentProducersConsumers() throws Exception {
+        ConcurrentMinHeap<Integer, Integer> heap = new ConcurrentMinHeap<>();
+        int producers = 4;
+        int perProducer = 5000;
+        int total = producers * perProducer;
+        boolean[] seen = new boolean[total];
+        AtomicInteger extracted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2 * producers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            futures.add(pool.submit(() -> {
+                Random r = new Random(base);
+                for (int i = 0; i < perProducer; i++) {
+                    heap.add(r.nextInt(1000), base + i);
+                }
+            }));
+            futures.add(pool.submit(() -> {
+                while (extracted.get() < total) {
+                    BinaryMinHeap.Entry<Integer, Integer> e = heap.poll();
+                    if (e != null) {
+                        synchronized (seen) {
+                            assertFalse(seen[e.value]);
+                            seen[e.value] = true;
+                        }
+                        extracted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertEquals(total, extracted.get());
+        assertTrue(heap.isEmpty());
+        assertNull(heap.poll());
+    }
+
+    //addAll()
+    @Test
+    public void addAllSorts() {
+        Random r = new Random(121);
+        List<BinaryMinHeap.Entry<Integer, Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            entries.add(new BinaryMinHeap.Entry<>(r.nextInt(100), i));
+        }
+        ConcurrentMinHeap<Integer, Integer> heap = new ConcurrentMinHeap<>();
+        heap.addAll(entries);
+        assertEquals(500, heap.size());
+        int last = Integer.MIN_VALUE;
+        while (!heap.isEmpty()) {
+            int key = heap.extractMin().key;
+            assertTrue(last <= key);
+            last = key;
+        }
+    }
+
+    @Test
+    public void addAllRepeatedValueUnchanged() {
+        ConcurrentMinHeap<Integer, Integer> heap = new ConcurrentMinHeap<>();
+        heap.add(3, 7);
+        try {
+            heap.addAll(Arrays.asList(new BinaryMinHeap.Entry<>(1, 4),
+                    new BinaryMinHeap.Entry<>(2, 4)));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, heap.size());
+            assertFalse(heap.containsValue(4));
+            assertEquals(7, (int) heap.extractMin().value);
+            assertNull(heap.poll());
+        }
+    }
+
+    //extractMin()
+    @Test(expected = NoSuchElementException.class)
+    public void extractMinEmpty() {
+        new ConcurrentMinHeap<Integer, String>().extractMin();
+    }
+
+    //decreaseKey()
+    @Test
+    public void decreaseKeyMovesToFront() {
+        ConcurrentMinHeap<Integer, String> heap = new ConcurrentMinHeap<>();
+        heap.add(5, "a");
+        heap.add(3, "b");
+        heap.add(8, "c");
+        heap.decreaseKey("c", 1);
+        assertEquals(3, heap.size());
+        assertEquals("c", heap.extractMin().value);
+        assertEquals("b", heap.extractMin().value);
+        assertEquals("a", heap.extractMin().value);
+    }
+
+    @Test
+    public void decreaseKeyRacingExtraction() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            ConcurrentMinHeap<Integer, Integer> heap = new ConcurrentMinHeap<>();
+            int n = 2000;
+            for (int i = 0; i < n; i++) {
+                heap.add(n + i, i);
+            }
+            AtomicInteger decreased = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(2);
+            Future<?> decreaser = pool.submit(() -> {
+                for (int i = n - 1; i >= 0; i--) {
+                    try {
+                        heap.decreaseKey(i, i);
+                        decreased.incrementAndGet();
+                    } catch (NoSuchElementException e) {
+                        // already extracted
+                    }
+                }
+            });
+            Future<Set<Integer>> extractor = pool.submit(() -> {
+                Set<Integer> values = new HashSet<>();
+                for (int i = 0; i < n; i++) {
+                    BinaryMinHeap.Entry<Integer, Integer> e;
+                    while ((e = heap.poll()) == null) {
+                        Thread.onSpinWait();
+                    }
+                    assertTrue(values.add(e.value));
+                }
+                return values;
+            });
+            decreaser.get(30, TimeUnit.SECONDS);
+            assertEquals(n, extractor.get(30, TimeUnit.SECONDS).size());
+            pool.shutdown();
+            assertTrue(heap.isEmpty());
+            assertTrue(decreased.get() <= n);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decreaseKeyLarger() {
+        ConcurrentMinHeap<Integer, String> heap = new ConcurrentMinHeap<>();
+        heap.add(5, "a");
+        heap.decreaseKey("a", 6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decreaseKeyNull() {
+        ConcurrentMinHeap<Integer, String> heap = new ConcurrentMinHeap<>();
+        heap.add(5, "a");
+        heap.decreaseKey("a", null);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void decreaseKeyMissing() {
+        new ConcurrentMinHeap<Integer, String>().decreaseKey("a", 1);
+    }
+
+    //peek()
+    @Test(expected = NoSuchElementException.class)
+    public void peekEmpty() {
+        new ConcurrentMinHeap<Integer, String>().peek();
+    }
+
+    //values()
+    @Test
+    public void valuesSnapshot() {
+        ConcurrentMinHeap<Integer, String> heap = new ConcurrentMinHeap<>();
+        heap.add(5, "a");
+        heap.add(3, "b");
+        Set<String> values = heap.values();
+        heap.extractMin();
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), values);
+    }
+}
@@ -0,0 +1,247 @@
+import java.util.*;
+
+/**
+ * A min-heap in which every node has up to {@code d} children, for {@code d} of 2, 4 or 8. A wider
+ * heap is shallower, so {@link #add(Comparable, Object)} and {@link #decreaseKey(Object,
+ * Comparable)} compare less, while {@link #extractMin()} compares more per level but over fewer
+ * levels whose children sit next to each other in memory.
+ * <p>
+ * Keys and values are kept in parallel arrays in heap order, and sifting moves a hole instead of
+ * swapping entries. With {@code d = 2} the heap compares exactly as {@link BinaryMinHeapImpl}
+ * does, and so breaks ties the same way.
+ *
+ * @param <V>   {@inheritDoc}
+ * @param <Key> {@inheritDoc}
+ */
+public class DaryMinHeapImpl<Key extends Comparable<Key>, V> implements BinaryMinHeap<Key, V> {
+
+    private final int arity;
+    private final HuffmanMetrics metrics;
+    private final Map<V, Integer> heapIndex = new HashMap<>();
+    private Object[] keys = new Object[16];
+    private Object[] values = new Object[16];
+    private int size;
+
+    /**
+     * Creates an empty heap.
+     *
+     * @param arity the number of children of each node: 2, 4 or 8
+     * @throws IllegalArgumentException if arity is not 2, 4 or 8
+     */
+    public DaryMinHeapImpl(int arity) {
+        this(arity, HuffmanMetrics.NOOP);
+    }
+
+    /**
+     * Creates an empty heap that reports each add, extractMin and decreaseKey to the given
+     * metrics.
+     *
+     * @param arity   the number of children of each node: 2, 4 or 8
+     * @param metrics where to report operations
+     * @throws IllegalArgumentException if arity is not 2, 4 or 8, or metrics is null
+     */
+    public DaryMinHeapImpl(int arity, HuffmanMetrics metrics) {
+        if ((arity != 2 && arity != 4 && arity != 8) || metrics == null) {
+            throw new IllegalArgumentException();
+        }
+        this.arity = arity;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the number of children of each node
+     */
+    public int arity() {
+        return arity;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Key key(int i) {
+        return (Key) keys[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int i) {
+        return (V) values[i];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsValue(V value) {
+        return heapIndex.containsKey(value);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            int length = Math.max(capacity, 2 * keys.length);
+            keys = Arrays.copyOf(keys, length);
+            values = Arrays.copyOf(values, length);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: expected O(log n / log d)
+     */
+    @Override
+    public void add(Key key, V value) {
+        if (key == null || containsValue(value)) {
+            throw new IllegalArgumentException();
+        }
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.ADD);
+        ensureCapacity(size + 1);
+        siftUp(size++, key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Builds the heap bottom-up, sifting down every parent from the last one up to the root, in
+     * O(n + m) for m entries added to n.
+     */
+    @Override
+    public void addAll(Collection<? extends Entry<Key, V>> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException();
+        }
+        Set<V> seen = new HashSet<>();
+        for (Entry<Key, V> e : entries) {
+            if (e == null || e.key == null || containsValue(e.value) || !seen.add(e.value)) {
+                throw new IllegalArgumentException();
+            }
+        }
+        ensureCapacity(size + entries.size());
+        for (Entry<Key, V> e : entries) {
+            metrics.heapOperation(HuffmanMetrics.HeapOperation.ADD);
+            heapIndex.put(e.value, size);
+            keys[size] = e.key;
+            values[size++] = e.value;
+        }
+        // the last parent is the parent of the last entry
+        for (int i = size > 1 ? (size - 2) / arity : -1; i >= 0; i--) {
+            siftDown(i, key(i), value(i));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: expected O(log n / log d)
+     */
+    @Override
+    public void decreaseKey(V value, Key newKey) {
+        Integer i = heapIndex.get(value);
+        if (i == null) {
+            throw new NoSuchElementException();
+        }
+        if (newKey == null || newKey.compareTo(key(i)) > 0) {
+            throw new IllegalArgumentException();
+        }
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.DECREASE_KEY);
+        siftUp(i, newKey, value);
+    }
+
+    private void siftUp(int i, Key key, V value) {
+        while (i > 0) {
+            int parent = (i - 1) / arity;
+            if (key(parent).compareTo(key) <= 0) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        place(i, key, value);
+    }
+
+    private void siftDown(int i, Key key, V value) {
+        while (true) {
+            int first = arity * i + 1;
+            int last = Math.min(first + arity, size);
+            int smallest = i;
+            Key smallestKey = key;
+            for (int child = first; child < last; child++) {
+                if (key(child).compareTo(smallestKey) < 0) {
+                    smallest = child;
+                    smallestKey = key(child);
+                }
+            }
+            if (smallest == i) {
+                break;
+            }
+            move(smallest, i);
+            i = smallest;
+        }
+        place(i, key, value);
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        values[to] = values[from];
+        heapIndex.put(value(to), to);
+    }
+
+    private void place(int i, Key key, V value) {
+        keys[i] = key;
+        values[i] = value;
+        heapIndex.put(value, i);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry<Key, V> peek() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return new Entry<>(key(0), value(0));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: expected O(d log n / log d)
+     */
+    @Override
+    public Entry<Key, V> extractMin() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.EXTRACT_MIN);
+        Entry<Key, V> min = new Entry<>(key(0), value(0));
+        heapIndex.remove(min.value);
+        size--;
+        Key key = key(size);
+        V value = value(size);
+        keys[size] = null;
+        values[size] = null;
+        if (size > 0) {
+            siftDown(0, key, value);
+        }
+        return min;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<V> values() {
+        return heapIndex.keySet();
+    }
+}
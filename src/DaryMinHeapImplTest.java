@@ -0,0 +1,193 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class DaryMinHeapImplTest {
+
+    //DaryMinHeapImpl()
+    @Test(expected = IllegalArgumentException.class)
+    public void daryMinHeapImplArityThree() {
+        new DaryMinHeapImpl<Integer, Integer>(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void daryMinHeapImplNullMetrics() {
+        new DaryMinHeapImpl<Integer, Integer>(4, null);
+    }
+
+    //add()
+    @Test
+    public void addPeekSmallest() {
+        for (int arity : new int[]{2, 4, 8}) {
+            DaryMinHeapImpl<Integer, String> heap = new DaryMinHeapImpl<>(arity);
+            heap.add(5, "a");
+            heap.add(3, "b");
+            heap.add(8, "c");
+            assertEquals(3, (int) heap.peek().key);
+            assertEquals("b", heap.peek().value);
+            assertEquals(3, heap.size());
+        }
+    }
+
+    @Test
+    public void addNullValue() {
+        DaryMinHeapImpl<Integer, String> heap = new DaryMinHeapImpl<>(4);
+        heap.add(2, "a");
+        heap.add(1, null);
+        assertTrue(heap.containsValue(null));
+        assertNull(heap.extractMin().value);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addNullKey() {
+        new DaryMinHeapImpl<Integer, String>(4).add(null, "a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addExistingValue() {
+        DaryMinHeapImpl<Integer, String> heap = new DaryMinHeapImpl<>(4);
+        heap.add(1, "a");
+        heap.add(2, "a");
+    }
+
+    //addAll()
+    @Test
+    public void addAllSorts() {
+        Random r = new Random(121);
+        for (int arity : new int[]{2, 4, 8}) {
+            List<BinaryMinHeap.Entry<Integer, Integer>> entries = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                entries.add(new BinaryMinHeap.Entry<>(r.nextInt(100), i));
+            }
+            DaryMinHeapImpl<Integer, Integer> heap = new DaryMinHeapImpl<>(arity);
+            heap.add(50, -1);
+            heap.addAll(entries);
+            assertEquals(501, heap.size());
+            int last = Integer.MIN_VALUE;
+            while (!heap.isEmpty()) {
+                int key = heap.extractMin().key;
+                assertTrue(last <= key);
+                last = key;
+            }
+        }
+    }
+
+    @Test
+    public void addAllEmpty() {
+        DaryMinHeapImpl<Integer, Integer> heap = new DaryMinHeapImpl<>(8);
+        heap.addAll(Collections.emptyList());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void addAllRepeatedValueUnchanged() {
+        DaryMinHeapImpl<Integer, Integer> heap = new DaryMinHeapImpl<>(4);
+        heap.add(3, 7);
+        try {
+            heap.addAll(Arrays.asList(new BinaryMinHeap.Entry<>(1, 4),
+                    new BinaryMinHeap.Entry<>(2, 4)));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, heap.size());
+            assertFalse(heap.containsValue(4));
+        }
+    }
+
+    //extractMin()
+    @Test
+    public void extractMinBinaryMatchesBinaryMinHeapImpl() {
+        Random r = new Random(121);
+        DaryMinHeapImpl<Integer, Integer> heap = new DaryMinHeapImpl<>(2);
+        BinaryMinHeapImpl<Integer, Integer> reference = new BinaryMinHeapImpl<>();
+        int next = 0;
+        for (int step = 0; step < 5000; step++) {
+            int op = r.nextInt(3);
+            if (op == 0) {
+                int key = r.nextInt(50);
+                heap.add(key, next);
+                reference.add(key, next++);
+            } else if (op == 1 && !reference.isEmpty()) {
+                BinaryMinHeap.Entry<Integer, Integer> expected = reference.extractMin();
+                BinaryMinHeap.Entry<Integer, Integer> actual = heap.extractMin();
+                assertEquals(expected.key, actual.key);
+                assertEquals(expected.value, actual.value);
+            } else if (!reference.isEmpty()) {
+                int value = reference.values().iterator().next();
+                int key = reference.getHeap().get(reference.getHeapIndex().get(value)).key;
+                int newKey = key - r.nextInt(10);
+                heap.decreaseKey(value, newKey);
+                reference.decreaseKey(value, newKey);
+            }
+            assertEquals(reference.size(), heap.size());
+        }
+    }
+
+    @Test
+    public void extractMinSortsWithDecreaseKey() {
+        Random r = new Random(121);
+        for (int arity : new int[]{4, 8}) {
+            DaryMinHeapImpl<Integer, Integer> heap = new DaryMinHeapImpl<>(arity);
+            Map<Integer, Integer> keys = new HashMap<>();
+            for (int i = 0; i < 1000; i++) {
+                int key = r.nextInt(1000);
+                heap.add(key, i);
+                keys.put(i, key);
+            }
+            for (int i = 0; i < 1000; i += 3) {
+                int key = keys.get(i) - r.nextInt(500);
+                heap.decreaseKey(i, key);
+                keys.put(i, key);
+            }
+            List<Integer> expected = new ArrayList<>(keys.values());
+            Collections.sort(expected);
+            for (int key : expected) {
+                BinaryMinHeap.Entry<Integer, Integer> e = heap.extractMin();
+                assertEquals(key, (int) e.key);
+                assertEquals(keys.get(e.value), e.key);
+            }
+            assertTrue(heap.isEmpty());
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void extractMinEmpty() {
+        new DaryMinHeapImpl<Integer, String>(4).extractMin();
+    }
+
+    //decreaseKey()
+    @Test(expected = IllegalArgumentException.class)
+    public void decreaseKeyLarger() {
+        DaryMinHeapImpl<Integer, String> heap = new DaryMinHeapImpl<>(4);
+        heap.add(5, "a");
+        heap.decreaseKey("a", 6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decreaseKeyNull() {
+        DaryMinHeapImpl<Integer, String> heap = new DaryMinHeapImpl<>(4);
+        heap.add(5, "a");
+        heap.decreaseKey("a", null);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void decreaseKeyMissing() {
+        new DaryMinHeapImpl<Integer, String>(4).decreaseKey("a", 1);
+    }
+
+    //peek()
+    @Test(expected = NoSuchElementException.class)
+    public void peekEmpty() {
+        new DaryMinHeapImpl<Integer, String>(4).peek();
+    }
+
+    //values()
+    @Test
+    public void valuesAll() {
+        DaryMinHeapImpl<Integer, String> heap = new DaryMinHeapImpl<>(8);
+        heap.add(5, "a");
+        heap.add(3, "b");
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), heap.values());
+    }
+}
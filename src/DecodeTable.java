@@ -0,0 +1,128 @@
+import java.util.*;
+
+/**
+ * Multi-level lookup tables for decoding a prefix code several bits at a time. The root table is
+ * indexed by the next {@code rootBits} bits of input and gives the decoded character together with
+ * the length of its code. Codes longer than the root table link to a second-level table indexed
+ * by the bits that follow, and so on, so no code ever needs a bit-by-bit tree walk.
+ * <p>
+ * Entries are packed into an {@code int}: a character entry holds {@code symbol << 8 | length},
+ * a link entry holds {@code offset << 8 | LINK | bits} for a sub-table of {@code 2^bits} entries
+ * starting at {@code offset}, and {@code 0} marks bits that start no code.
+ */
+class DecodeTable {
+
+    /**
+     * Index width of the root table, for alphabets whose longest code is at least this long.
+     */
+    static final int ROOT_BITS = 10;
+
+    private static final int LINK = 0x80;
+
+    private final int rootBits;
+    private int[] table;
+    private int size;
+
+    /**
+     * Builds the tables for a prefix code.
+     *
+     * @param symbols the characters of the alphabet
+     * @param codes   the code of each character, right-aligned
+     * @param lengths the length of each code, between 1 and {@link BitReader#WINDOW_BITS}
+     * @param count   the number of characters in the alphabet
+     * @throws IllegalArgumentException if a code length is out of range
+     */
+    DecodeTable(char[] symbols, long[] codes, int[] lengths, int count) {
+        int maxLength = 0;
+        for (int i = 0; i < count; i++) {
+            if (lengths[i] < 1 || lengths[i] > BitReader.WINDOW_BITS) {
+                throw new IllegalArgumentException();
+            }
+            maxLength = Math.max(maxLength, lengths[i]);
+        }
+        rootBits = Math.min(ROOT_BITS, maxLength);
+        table = new int[1 << rootBits];
+        size = table.length;
+
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            all.add(i);
+        }
+        fill(0, rootBits, 0, all, symbols, codes, lengths);
+    }
+
+    private void fill(int offset, int bits, int consumed, List<Integer> members,
+                      char[] symbols, long[] codes, int[] lengths) {
+        Map<Integer, List<Integer>> links = new TreeMap<>();
+        for (int i : members) {
+            int rem = lengths[i] - consumed;
+            long code = codes[i] & ((1L << rem) - 1);
+            if (rem <= bits) {
+                int first = (int) (code << (bits - rem));
+                int entry = (symbols[i] << 8) | rem;
+                for (int k = 0; k < 1 << (bits - rem); k++) {
+                    table[offset + first + k] = entry;
+                }
+            } else {
+                links.computeIfAbsent((int) (code >>> (rem - bits)), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (Map.Entry<Integer, List<Integer>> link : links.entrySet()) {
+            int longest = 0;
+            for (int i : link.getValue()) {
+                longest = Math.max(longest, lengths[i] - consumed - bits);
+            }
+            int subBits = Math.min(ROOT_BITS, longest);
+            int subOffset = allocate(1 << subBits);
+            table[offset + link.getKey()] = (subOffset << 8) | LINK | subBits;
+            fill(subOffset, subBits, consumed + bits, link.getValue(), symbols, codes, lengths);
+        }
+    }
+
+    private int allocate(int entries) {
+        if (size + entries > table.length) {
+            table = Arrays.copyOf(table, Math.max(size + entries, table.length * 2));
+        }
+        size += entries;
+        return size - entries;
+    }
+
+    /**
+     * Decodes the character at the start of a window of bits.
+     *
+     * @param window the next bits of input, left-aligned, as returned by {@link BitReader#peek()}
+     * @return {@code symbol << 8 | length} for the first code in the window, or {@code 0} if the
+     * window does not start with a code
+     */
+    int decode(long window) {
+        int entry = table[(int) (window >>> (64 - rootBits))];
+        int consumed = 0;
+        int bits = rootBits;
+        while ((entry & LINK) != 0) {
+            consumed += bits;
+            bits = entry & (LINK - 1);
+            entry = table[(entry >>> 8) + (int) ((window << consumed) >>> (64 - bits))];
+        }
+        return entry == 0 ? 0 : entry + consumed;
+    }
+
+    /**
+     * Decodes every character in the remaining input of a reader.
+     *
+     * @param in  the bits to decode
+     * @param out where to append the decoded characters
+     * @throws IllegalArgumentException if the bits are not decodable
+     */
+    void decode(BitReader in, StringBuilder out) {
+        while (in.remaining() > 0) {
+            int entry = decode(in.peek());
+            int length = entry & 0xFF;
+            if (entry == 0 || length > in.remaining()) {
+                throw new IllegalArgumentException();
+            }
+            out.append((char) (entry >>> 8));
+            in.skip(length);
+        }
+    }
+}
@@ -1,22 +1,59 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Implements construction, encoding, and decoding logic of the Huffman coding algorithm. Characters
  * not in the given seed or alphabet should not be compressible, and attempts to use those
  * characters should result in the throwing of an {@link IllegalArgumentException} if used in {@link
  * #compress(String)}.
+ * <p>
+ * The codebook is immutable once constructed: frequency maps are copied, codes live in final
+ * arrays, and the tree and seed string that are built on first use are published through volatile
+ * fields. One instance can therefore be shared by any number of threads without locking. The
+ * statistics behind {@link #compressionRatio()} are kept apart in {@link LongAdder} counters that
+ * every thread adds to without contention.
  */
 public class Huffman {
 
-    private BinaryMinHeapImpl queue = new BinaryMinHeapImpl();
-    private Map<Character, Integer> alphabetFreq = new HashMap<>();
-    private TreeNode treeNode;
-    private String seedString;
-    private int totalLengthString;
-    private String binaryEncoder;
-    private Map<Character, String> alphabetBE = new HashMap<>();
-    private int inputLengthString;
-    private int binaryEncoderLengthString;
+    /**
+     * Number of characters encoded by each task of {@link #compressParallel(CharSequence,
+     * ForkJoinPool)}.
+     */
+    static final int PARALLEL_CHUNK = 1 << 18;
+
+    /**
+     * Seed length from which {@link #Huffman(String)} counts characters into a histogram on the
+     * common {@link ForkJoinPool}; shorter seeds are counted on the calling thread.
+     */
+    static final int PARALLEL_HISTOGRAM = 1 << 20;
+
+    private final HuffmanMetrics metrics;
+    private final Map<Character, Integer> alphabetFreq;
+    private volatile CodeTree tree;
+    private volatile String seedString;
+    private final int totalLengthString;
+    private final char[] symbols;
+    private final long[] codes;
+    private final byte[] lengths;
+    private final long[] present = new long[(Character.MAX_VALUE + 1) / 64];
+    private final DecodeTable decodeTable;
+    private final boolean canonical;
+    private final LongAdder inputLengthString = new LongAdder();
+    private final LongAdder binaryEncoderLengthString = new LongAdder();
+    // whether the last output was non-empty, written only when that changes so that concurrent
+    // compressions do not all write one shared field
+    private volatile boolean lastOutputNonEmpty;
 
     /**
      * Constructs a {@code Huffman} instance from a seed string, from which to deduce the alphabet
@@ -29,25 +66,133 @@ public class Huffman {
      *                                  1 character
      */
     public Huffman(String seed) {
+        this(seed, HuffmanMetrics.NOOP);
+    }
+
+    /**
+     * Constructs a {@code Huffman} instance from a seed string that reports its build, counting
+     * the seed included, and every later operation to the given metrics.
+     *
+     * @param seed    the String from which to build the encoding
+     * @param metrics where to report operations
+     * @throws IllegalArgumentException seed or metrics is null, seed is empty, or resulting
+     *                                  alphabet only has 1 character
+     */
+    public Huffman(String seed, HuffmanMetrics metrics) {
+        // arguments are evaluated in order, so the clock starts before the seed is counted
+        this(checked(metrics), startTime(metrics), countSeed(seed), Construction.HEAP, seed);
+    }
+
+    private static HuffmanMetrics checked(HuffmanMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException();
+        }
+        return metrics;
+    }
+
+    /**
+     * Counts the characters of a seed into a histogram. The map is filled in the order in which
+     * characters first occur in the seed, as it always has been, since its iteration order breaks
+     * ties between equal frequencies and so decides the codes.
+     */
+    private static Map<Character, Integer> countSeed(String seed) {
         if (seed == null) {
             throw new IllegalArgumentException();
         }
         if (seed.length() == 0) {
             throw new IllegalArgumentException();
         }
-        binaryEncoder = null;
-        seedString = seed;
 
-        for (int i = 0; i < seed.length(); i++) {
-            char c = seed.charAt(i);
-            if (alphabetFreq.containsKey(c)) {
-                alphabetFreq.put(c, alphabetFreq.get(c) + 1);
-            } else {
-                alphabetFreq.put(c, 1);
+        Map<Character, Integer> alphabetFreq = new HashMap<>();
+        if (seed.length() < PARALLEL_HISTOGRAM) {
+            // sized to the largest character seen so far, so short ASCII seeds stay small
+            int[] counts = new int[256];
+            char[] order = new char[16];
+            int distinct = 0;
+            for (int i = 0; i < seed.length(); i++) {
+                char c = seed.charAt(i);
+                if (c >= counts.length) {
+                    counts = Arrays.copyOf(counts,
+                            Math.min(Character.MAX_VALUE + 1, Math.max(c + 1, 2 * counts.length)));
+                }
+                if (counts[c]++ == 0) {
+                    if (distinct == order.length) {
+                        order = Arrays.copyOf(order, 2 * distinct);
+                    }
+                    order[distinct++] = c;
+                }
             }
+            for (int i = 0; i < distinct; i++) {
+                alphabetFreq.put(order[i], counts[order[i]]);
+            }
+        } else {
+            int leaf = Math.max(PARALLEL_HISTOGRAM / 4,
+                    seed.length() / (4 * ForkJoinPool.commonPool().getParallelism()));
+            int[] histogram = ForkJoinPool.commonPool().invoke(
+                    new CountTask(seed, 0, seed.length(), leaf));
+            // (first occurrence, character) pairs, sorted into first-occurrence order
+            long[] order = new long[CountTask.SYMBOLS];
+            int distinct = 0;
+            for (int c = 0; c < CountTask.SYMBOLS; c++) {
+                if (histogram[c] > 0) {
+                    order[distinct++] = (long) histogram[CountTask.SYMBOLS + c] << 16 | c;
+                }
+            }
+            Arrays.sort(order, 0, distinct);
+            for (int i = 0; i < distinct; i++) {
+                char c = (char) order[i];
+                alphabetFreq.put(c, histogram[c]);
+            }
+        }
+        return Collections.unmodifiableMap(alphabetFreq);
+    }
+
+    /**
+     * Counts characters into a histogram, splitting the seed between tasks until each has at most
+     * {@code leaf} characters and combining their histograms. The result holds the count of each
+     * character followed by the index at which it first occurs, which is meaningful only for a
+     * nonzero count.
+     */
+    private static class CountTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        static final int SYMBOLS = Character.MAX_VALUE + 1;
+
+        private final String seed;
+        private final int from, to, leaf;
+
+        CountTask(String seed, int from, int to, int leaf) {
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
         }
 
-        createTreeNode();
+        @Override
+        protected int[] compute() {
+            if (to - from > leaf) {
+                int mid = (from + to) >>> 1;
+                CountTask right = new CountTask(seed, mid, to, leaf);
+                right.fork();
+                int[] histogram = new CountTask(seed, from, mid, leaf).compute();
+                int[] rightHistogram = right.join();
+                for (int c = 0; c < SYMBOLS; c++) {
+                    if (histogram[c] == 0) {
+                        histogram[SYMBOLS + c] = rightHistogram[SYMBOLS + c];
+                    }
+                    histogram[c] += rightHistogram[c];
+                }
+                return histogram;
+            }
+            int[] histogram = new int[2 * SYMBOLS];
+            for (int i = from; i < to; i++) {
+                char c = seed.charAt(i);
+                if (histogram[c]++ == 0) {
+                    histogram[SYMBOLS + c] = i;
+                }
+            }
+            return histogram;
+        }
     }
 
     /**
@@ -60,81 +205,794 @@ public class Huffman {
      *                                  or has any non-positive frequencies
      */
     public Huffman(Map<Character, Integer> alphabet) {
+        this(alphabet, Construction.HEAP);
+    }
+
+    /**
+     * Constructs a {@code Huffman} instance from a frequency map of the input alphabet, building
+     * the tree with the given strategy.
+     *
+     * @param alphabet     a frequency map for characters in the alphabet
+     * @param construction how to merge the tree
+     * @throws IllegalArgumentException if the alphabet or construction is null, the alphabet is
+     *                                  empty, has fewer than 2 characters, or has any non-positive
+     *                                  frequencies
+     */
+    public Huffman(Map<Character, Integer> alphabet, Construction construction) {
+        this(alphabet, construction, HuffmanMetrics.NOOP);
+    }
+
+    /**
+     * Constructs a {@code Huffman} instance from a frequency map of the input alphabet that reports
+     * its build and every later operation to the given metrics.
+     *
+     * @param alphabet a frequency map for characters in the alphabet
+     * @param metrics  where to report operations
+     * @throws IllegalArgumentException if the alphabet or metrics is null, the alphabet is empty,
+     *                                  has fewer than 2 characters, or has any non-positive
+     *                                  frequencies
+     */
+    public Huffman(Map<Character, Integer> alphabet, HuffmanMetrics metrics) {
+        this(alphabet, Construction.HEAP, metrics);
+    }
+
+    /**
+     * Constructs a {@code Huffman} instance from a frequency map of the input alphabet, building
+     * the tree with the given strategy, that reports its build, heap operations included, and
+     * every later operation to the given metrics.
+     *
+     * @param alphabet     a frequency map for characters in the alphabet
+     * @param construction how to merge the tree
+     * @param metrics      where to report operations
+     * @throws IllegalArgumentException if the alphabet, construction or metrics is null, the
+     *                                  alphabet is empty, has fewer than 2 characters, or has any
+     *                                  non-positive frequencies
+     */
+    public Huffman(Map<Character, Integer> alphabet, Construction construction,
+                   HuffmanMetrics metrics) {
+        this(checked(metrics), startTime(metrics), copyOf(alphabet), construction, null);
+    }
+
+    /**
+     * Copies a frequency map, keeping its iteration order so that ties are broken the same way as
+     * they would be for the caller's map.
+     */
+    private static Map<Character, Integer> copyOf(Map<Character, Integer> alphabet) {
         if (alphabet == null) {
             throw new IllegalArgumentException();
         }
         if (alphabet.isEmpty()) {
             throw new IllegalArgumentException();
         }
-        binaryEncoder = null;
-        alphabetFreq = alphabet;
+        for (int f : alphabet.values()) {
+            if (f < 1) {
+                throw new IllegalArgumentException();
+            }
+        }
+        return Collections.unmodifiableMap(new LinkedHashMap<>(alphabet));
+    }
 
-        createTreeNode();
+    private Huffman(HuffmanMetrics m, long start, Map<Character, Integer> freq,
+                    Construction construction, String seed) {
+        if (construction == null) {
+            throw new IllegalArgumentException();
+        }
+        metrics = m;
+        alphabetFreq = freq;
+        seedString = seed;
+        symbols = new char[freq.size()];
+        int total = 0;
+        int i = 0;
+        for (Map.Entry<Character, Integer> e : freq.entrySet()) {
+            symbols[i++] = e.getKey();
+            total += e.getValue();
+        }
+        if (symbols.length < 2) {
+            throw new IllegalArgumentException();
+        }
+        totalLengthString = total;
+        codes = new long[maxChar(symbols) + 1];
+        lengths = new byte[codes.length];
+
+        CodeTree merged;
+        if (construction == Construction.TWO_QUEUE) {
+            merged = twoQueueMerge(symbols);
+        } else if (construction == Construction.INT_HEAP) {
+            merged = intHeapMerge(symbols, m);
+        } else if (construction == Construction.RADIX) {
+            merged = heapMerge(symbols, new RadixMinHeap<>(m));
+        } else {
+            merged = heapMerge(symbols, new BinaryMinHeapImpl<>(m));
+        }
+        assignCodes(merged);
+        tree = merged;
+        decodeTable = buildDecodeTable();
+        canonical = false;
+        reportCodebook(m, start);
+    }
+
+    /**
+     * Constructs a {@code Huffman} instance from a frequency map of the input alphabet whose codes
+     * are no longer than {@code maxCodeLength} bits. The code lengths are the optimal ones under
+     * that limit, found by package-merge, and the codes are canonical. {@link
+     * #lengthLimitPenalty()} reports how much longer the expected encoding is than without the
+     * limit.
+     *
+     * @param alphabet      a frequency map for characters in the alphabet
+     * @param maxCodeLength the longest code allowed
+     * @throws IllegalArgumentException if the alphabet is null, empty, has fewer than 2
+     *                                  characters, or has any non-positive frequencies, or if
+     *                                  {@code maxCodeLength} is too short to give every character
+     *                                  a code or longer than {@value BitReader#WINDOW_BITS}
+     */
+    public Huffman(Map<Character, Integer> alphabet, int maxCodeLength) {
+        this(alphabet, maxCodeLength, HuffmanMetrics.NOOP);
+    }
 
-        Object[] alphabetArr = alphabetFreq.keySet().toArray();
-        StringBuilder sString = new StringBuilder();
-        for (Object o : alphabetArr) {
-            if (alphabetFreq.get(o) < 1) {
+    /**
+     * Constructs a length-limited {@code Huffman} instance, as {@link #Huffman(Map, int)} does,
+     * that reports its build and every later operation to the given metrics.
+     *
+     * @param alphabet      a frequency map for characters in the alphabet
+     * @param maxCodeLength the longest code allowed
+     * @param metrics       where to report operations
+     * @throws IllegalArgumentException as {@link #Huffman(Map, int)} does, or if metrics is null
+     */
+    public Huffman(Map<Character, Integer> alphabet, int maxCodeLength, HuffmanMetrics metrics) {
+        this(checked(metrics), startTime(metrics), alphabetOf(alphabet), copyOf(alphabet),
+                maxCodeLength);
+    }
+
+    private Huffman(HuffmanMetrics m, long start, char[] symbols, Map<Character, Integer> freq,
+                    int maxCodeLength) {
+        this(m, start, symbols, packageMerge(symbols, freq, maxCodeLength), freq, null);
+    }
+
+    private static char[] alphabetOf(Map<Character, Integer> alphabet) {
+        if (alphabet == null || alphabet.size() < 2) {
+            throw new IllegalArgumentException();
+        }
+        char[] symbols = new char[alphabet.size()];
+        int i = 0;
+        for (Map.Entry<Character, Integer> e : alphabet.entrySet()) {
+            if (e.getValue() < 1) {
                 throw new IllegalArgumentException();
             }
-            for (int j = 0; j < alphabetFreq.get(o); j++) {
-                sString.append(o);
+            symbols[i++] = e.getKey();
+        }
+        return symbols;
+    }
+
+    /**
+     * Computes optimal code lengths of at most {@code maxLength} bits with the package-merge
+     * algorithm. Starting from the sorted leaves at depth {@code maxLength}, each shallower level
+     * merges the leaves with packages made by pairing up the previous level's items. The first
+     * {@code 2n - 2} items at depth 1 are chosen, and a character's code length is the number of
+     * chosen items, counting those inside chosen packages, that contain it.
+     */
+    private static int[] packageMerge(char[] symbols, Map<Character, Integer> freq, int maxLength) {
+        int n = symbols.length;
+        if (maxLength > BitReader.WINDOW_BITS || maxLength < 1
+                || (maxLength < 31 && 1 << maxLength < n)) {
+            throw new IllegalArgumentException();
+        }
+        int[] weight = new int[n];
+        for (int i = 0; i < n; i++) {
+            weight[i] = freq.get(symbols[i]);
+        }
+        int[] order = sortByFrequency(weight);
+
+        boolean[][] isPackage = new boolean[maxLength + 1][];
+        long[] items = new long[n];
+        for (int k = 0; k < n; k++) {
+            items[k] = weight[order[k]];
+        }
+        isPackage[maxLength] = new boolean[n];
+        for (int depth = maxLength - 1; depth >= 1; depth--) {
+            int packages = items.length / 2;
+            long[] merged = new long[n + packages];
+            isPackage[depth] = new boolean[n + packages];
+            int leaf = 0;
+            int pkg = 0;
+            for (int k = 0; k < merged.length; k++) {
+                long pkgWeight = pkg < packages ? items[2 * pkg] + items[2 * pkg + 1] : Long.MAX_VALUE;
+                if (leaf < n && weight[order[leaf]] <= pkgWeight) {
+                    merged[k] = weight[order[leaf++]];
+                } else {
+                    merged[k] = pkgWeight;
+                    isPackage[depth][k] = true;
+                    pkg++;
+                }
             }
+            items = merged;
         }
-        seedString = sString.toString();
+
+        int[] lengths = new int[n];
+        int chosen = 2 * n - 2;
+        for (int depth = 1; depth <= maxLength && chosen > 0; depth++) {
+            int packages = 0;
+            int leaf = 0;
+            for (int k = 0; k < chosen; k++) {
+                if (isPackage[depth][k]) {
+                    packages++;
+                } else {
+                    lengths[order[leaf++]]++;
+                }
+            }
+            chosen = 2 * packages;
+        }
+        return lengths;
     }
 
-    private void createTreeNode() {
-        Object[] alphabetArr = alphabetFreq.keySet().toArray();
+    /**
+     * Strategies for merging the Huffman tree. They all give optimal codes, but may break ties
+     * between equal frequencies differently and so give different trees.
+     */
+    public enum Construction {
+        /**
+         * Repeatedly merges the two smallest trees taken from a {@link BinaryMinHeapImpl}, in
+         * O(n log n).
+         */
+        HEAP,
+        /**
+         * Radix sorts the frequencies once, then merges from two queues: the sorted leaves and
+         * the merged trees, which come out in nondecreasing order. O(n) after the sort, which is
+         * itself linear. Ties go to the leaf.
+         */
+        TWO_QUEUE,
+        /**
+         * Like {@link #HEAP}, but with an {@link IntMinHeap} of node numbers, which breaks ties
+         * the same way and so gives the same tree, without boxing or hashing.
+         */
+        INT_HEAP,
+        /**
+         * Like {@link #HEAP}, but with a {@link RadixMinHeap}, whose operations are amortized
+         * O(1) because merged frequencies never decrease.
+         */
+        RADIX
+    }
 
-        int count = 0;
-        for (Object o : alphabetArr) {
-            queue.add(alphabetFreq.get(o), new TreeNode(o.toString(), alphabetFreq.get(o)));
-            totalLengthString += alphabetFreq.get(o);
-            count++;
+    /**
+     * Merges the tree from a heap of node numbers. The leaves are added one at a time in the
+     * order of the alphabet, as they always have been: building the heap bottom-up would lay it
+     * out differently, break ties between equal frequencies differently, and so give different
+     * codes for the same frequencies than earlier versions and other peers.
+     */
+    private CodeTree heapMerge(char[] alphabet, BinaryMinHeap<Integer, Integer> queue) {
+        CodeTree tree = new CodeTree(alphabet.length);
+        for (char c : alphabet) {
+            int f = alphabetFreq.get(c);
+            queue.add(f, tree.leaf(c, f));
         }
 
-        if (count < 2) {
-            throw new IllegalArgumentException();
+        while (queue.size() > 1) {
+            BinaryMinHeap.Entry<Integer, Integer> e1 = queue.extractMin();
+            BinaryMinHeap.Entry<Integer, Integer> e2 = queue.extractMin();
+            queue.add(e1.key + e2.key, tree.merge(e1.value, e2.value));
+        }
+        return tree;
+    }
+
+    private CodeTree intHeapMerge(char[] alphabet, HuffmanMetrics m) {
+        CodeTree tree = new CodeTree(alphabet.length);
+        IntMinHeap queue = new IntMinHeap(tree.size(), m);
+        // added one at a time, as heapMerge does, to break ties the same way
+        for (char c : alphabet) {
+            int f = alphabetFreq.get(c);
+            queue.add(f, tree.leaf(c, f));
         }
 
         while (queue.size() > 1) {
-            BinaryMinHeap.Entry<Integer, TreeNode> e1 = queue.extractMin();
-            BinaryMinHeap.Entry<Integer, TreeNode> e2 = queue.extractMin();
+            int key1 = queue.peekKey();
+            int node1 = queue.removeMin();
+            int key2 = queue.peekKey();
+            int node2 = queue.removeMin();
+            queue.add(key1 + key2, tree.merge(node1, node2));
+        }
+        return tree;
+    }
 
-            TreeNode e1t = e1.value;
-            TreeNode e2t = e2.value;
+    private CodeTree twoQueueMerge(char[] alphabet) {
+        int n = alphabet.length;
+        int[] freq = new int[n];
+        for (int i = 0; i < n; i++) {
+            freq[i] = alphabetFreq.get(alphabet[i]);
+        }
+        int[] order = sortByFrequency(freq);
+        CodeTree tree = new CodeTree(n);
+        for (int k = 0; k < n; k++) {
+            tree.leaf(alphabet[order[k]], freq[order[k]]);
+        }
 
-            queue.add(e1.key + e2.key, new TreeNode(e1t, e2t, e1.key + e2.key));
+        // leaves are nodes 0 to n - 1 in sorted order and merged nodes follow from n, so both
+        // queues are ranges of node numbers
+        int nextLeaf = 0;
+        int head = n;
+        int tail = n;
+        while (tail < 2 * n - 1) {
+            int left = nextLeaf < n && (head == tail || tree.freq(nextLeaf) <= tree.freq(head))
+                    ? nextLeaf++ : head++;
+            int right = nextLeaf < n && (head == tail || tree.freq(nextLeaf) <= tree.freq(head))
+                    ? nextLeaf++ : head++;
+            tail = tree.merge(left, right) + 1;
+        }
+        return tree;
+    }
 
-            if (queue.size() == 1) {
-                treeNode = new TreeNode(e1t, e2t, e1.key + e2.key);
+    /**
+     * Stable LSD radix sort of indices by frequency, one byte per pass, skipping passes in which
+     * every frequency has the same byte.
+     *
+     * @param freq non-negative frequencies
+     * @return the indices of {@code freq} in nondecreasing order of frequency
+     */
+    static int[] sortByFrequency(int[] freq) {
+        int n = freq.length;
+        int[] order = new int[n];
+        int[] tmp = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int shift = 0; shift < 32; shift += 8) {
+            int[] count = new int[257];
+            for (int i : order) {
+                count[((freq[i] >>> shift) & 0xFF) + 1]++;
+            }
+            if (count[((freq[0] >>> shift) & 0xFF) + 1] == n) {
+                continue;
+            }
+            for (int d = 0; d < 256; d++) {
+                count[d + 1] += count[d];
+            }
+            for (int i : order) {
+                tmp[count[(freq[i] >>> shift) & 0xFF]++] = i;
+            }
+            int[] swap = order;
+            order = tmp;
+            tmp = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Constructs a {@code Huffman} instance using canonical codes: codes of equal length are
+     * consecutive binary numbers in increasing character order, and every length's codes follow
+     * on from the last code of the previous length. Only the code length of each character is
+     * needed to rebuild such a codebook.
+     *
+     * @param m       where to report operations
+     * @param start   when the build started, from {@link #startTime(HuffmanMetrics)}
+     * @param symbols the characters of the alphabet
+     * @param lengths the code length of each character
+     * @param freq    the frequency of each character, or an empty map if unknown
+     * @param seed    the seed string, or null if unknown
+     */
+    private Huffman(HuffmanMetrics m, long start, char[] symbols, int[] lengths,
+                    Map<Character, Integer> freq, String seed) {
+        metrics = m;
+        this.symbols = symbols;
+        codes = new long[maxChar(symbols) + 1];
+        this.lengths = new byte[codes.length];
+        Integer[] order = new Integer[symbols.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> lengths[a] != lengths[b]
+                ? lengths[a] - lengths[b] : symbols[a] - symbols[b]);
+
+        long code = 0;
+        int prevLength = lengths[order[0]];
+        for (int i : order) {
+            code <<= lengths[i] - prevLength;
+            prevLength = lengths[i];
+            setCode(symbols[i], code, lengths[i]);
+            code++;
+        }
+
+        alphabetFreq = freq;
+        int total = 0;
+        for (int f : freq.values()) {
+            total += f;
+        }
+        totalLengthString = total;
+        seedString = seed;
+        canonical = true;
+        decodeTable = buildDecodeTable();
+        reportCodebook(m, start);
+    }
+
+    /**
+     * Codes are stored in flat arrays indexed by character, only as long as the largest character
+     * of the alphabet needs, and a bitmap over all characters records which ones are in the
+     * alphabet.
+     *
+     * @return the largest character of the alphabet
+     */
+    private static char maxChar(char[] alphabet) {
+        char max = 0;
+        for (char c : alphabet) {
+            max = (char) Math.max(max, c);
+        }
+        return max;
+    }
+
+    private void setCode(char c, long code, int length) {
+        codes[c] = code;
+        lengths[c] = (byte) length;
+        present[c >>> 6] |= 1L << c;
+    }
+
+    private boolean isPresent(char c) {
+        return (present[c >>> 6] & (1L << c)) != 0;
+    }
+
+    private String bitString(char c) {
+        StringBuilder bits = new StringBuilder(lengths[c]);
+        for (int b = lengths[c] - 1; b >= 0; b--) {
+            bits.append((char) ('0' + ((codes[c] >>> b) & 1)));
+        }
+        return bits.toString();
+    }
 
-                StringBuilder sb = new StringBuilder();
-                recBits(treeNode, sb);
+    private void reportCodebook(HuffmanMetrics m, long start) {
+        if (m != HuffmanMetrics.NOOP) {
+            long nanos = System.nanoTime() - start;
+            int[] counts = new int[BitReader.WINDOW_BITS + 1];
+            for (char c : symbols) {
+                counts[lengths[c]]++;
             }
+            m.codebookBuilt(counts, nanos);
         }
     }
 
+    /**
+     * @return the metrics this codebook reports to, {@link HuffmanMetrics#NOOP} unless it was
+     * constructed with others
+     */
+    public HuffmanMetrics getMetrics() {
+        return metrics;
+    }
+
+    private static long startTime(HuffmanMetrics m) {
+        return m == HuffmanMetrics.NOOP ? 0 : System.nanoTime();
+    }
+
+    private static long elapsed(HuffmanMetrics m, long start) {
+        return m == HuffmanMetrics.NOOP ? 0 : System.nanoTime() - start;
+    }
+
+    private DecodeTable buildDecodeTable() {
+        long[] symbolCodes = new long[symbols.length];
+        int[] symbolLengths = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            symbolCodes[i] = codes[symbols[i]];
+            symbolLengths[i] = lengths[symbols[i]];
+        }
+        return new DecodeTable(symbols, symbolCodes, symbolLengths, symbols.length);
+    }
+
+    /**
+     * @return a view of the root of the code tree, which is rebuilt from the codes on first use
+     * for canonical codebooks
+     */
     public TreeNode getTreeNode() {
-        return treeNode;
+        CodeTree t = tree;
+        if (t == null) {
+            t = new CodeTree(symbols.length);
+            recTreeFromCodes(t, symbols.clone(), 0, symbols.length, 0);
+            tree = t;
+        }
+        return new TreeNode(t, t.root());
+    }
+
+    /**
+     * Adds the subtree holding {@code alphabet[from, to)}, all of whose codes agree on their first
+     * {@code depth} bits, and returns its node number. The range is partitioned in place by the
+     * next bit.
+     */
+    private int recTreeFromCodes(CodeTree t, char[] alphabet, int from, int to, int depth) {
+        if (to - from == 1 && lengths[alphabet[from]] == depth) {
+            Integer freq = alphabetFreq.get(alphabet[from]);
+            return t.leaf(alphabet[from], freq == null ? 0 : freq);
+        }
+        int mid = from;
+        for (int i = from; i < to; i++) {
+            char c = alphabet[i];
+            if (((codes[c] >>> (lengths[c] - 1 - depth)) & 1) == 0) {
+                alphabet[i] = alphabet[mid];
+                alphabet[mid++] = c;
+            }
+        }
+        int l = recTreeFromCodes(t, alphabet, from, mid, depth + 1);
+        int r = recTreeFromCodes(t, alphabet, mid, to, depth + 1);
+        return t.merge(l, r);
+    }
+
+    /**
+     * Returns a codebook with the same code lengths as this one, and so the same compression, but
+     * whose codes are canonical, so that it can be shared through {@link #getHeader()}. It reports
+     * to the same metrics as this one.
+     *
+     * @return the canonical version of this codebook
+     */
+    public Huffman toCanonical() {
+        if (canonical) {
+            return this;
+        }
+        int[] symbolLengths = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            symbolLengths[i] = lengths[symbols[i]];
+        }
+        return new Huffman(metrics, startTime(metrics), symbols.clone(), symbolLengths,
+                alphabetFreq, seedString);
+    }
+
+    /**
+     * @return true if this codebook uses canonical codes
+     */
+    public boolean isCanonical() {
+        return canonical;
+    }
+
+    /**
+     * Encodes this codebook as a compact header from which {@link #fromHeader(ByteBuffer)} can
+     * rebuild it. Only code lengths are recorded: one byte for the longest code length, then for
+     * each length from 1 up to it an unsigned LEB128 varint count of the characters with that
+     * length, then the characters in canonical order, each as a varint of its difference from the
+     * previous character of the same length (or from 0 for the first of each length).
+     *
+     * @return the header bytes
+     * @throws IllegalStateException if this codebook is not canonical
+     */
+    public byte[] getHeader() {
+        if (!canonical) {
+            throw new IllegalStateException();
+        }
+        long[] order = new long[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            order[i] = ((long) lengths[symbols[i]] << 16) | symbols[i];
+        }
+        Arrays.sort(order);
+        int maxLength = (int) (order[order.length - 1] >>> 16);
+
+        ByteBuffer header = ByteBuffer.allocate(1 + 3 * (maxLength + order.length));
+        header.put((byte) maxLength);
+        int[] counts = new int[maxLength + 1];
+        for (long rank : order) {
+            counts[(int) (rank >>> 16)]++;
+        }
+        for (int len = 1; len <= maxLength; len++) {
+            putVarint(header, counts[len]);
+        }
+        int prevLength = 0;
+        char prev = 0;
+        for (long rank : order) {
+            int len = (int) (rank >>> 16);
+            char c = (char) rank;
+            putVarint(header, len == prevLength ? c - prev : c);
+            prevLength = len;
+            prev = c;
+        }
+        return Arrays.copyOf(header.array(), header.position());
     }
 
+    /**
+     * Writes this codebook's header, as described in {@link #getHeader()}, at the position of the
+     * given buffer.
+     *
+     * @param dst the buffer to write to
+     * @throws IllegalStateException if this codebook is not canonical
+     * @throws BufferOverflowException if the buffer does not have enough remaining space
+     */
+    public void writeHeader(ByteBuffer dst) {
+        dst.put(getHeader());
+    }
+
+    /**
+     * Rebuilds a canonical codebook from a header written by {@link #getHeader()}, reading from
+     * the position of the given buffer and leaving it just past the header. No tree is built; the
+     * codes are assigned straight from their lengths. Since the header carries no frequencies,
+     * {@link #expectedEncodingLength()} is not available on the result and {@link
+     * #getSeedString()} returns null.
+     *
+     * @param header the buffer to read from
+     * @return the codebook described by the header
+     * @throws IllegalArgumentException if the header is null or malformed, or does not describe a
+     *                                  complete prefix code of at least 2 characters
+     */
+    public static Huffman fromHeader(ByteBuffer header) {
+        return fromHeader(header, HuffmanMetrics.NOOP);
+    }
+
+    /**
+     * Rebuilds a canonical codebook from a header, as {@link #fromHeader(ByteBuffer)} does, that
+     * reports its build and every later operation to the given metrics.
+     *
+     * @param header  the buffer to read from
+     * @param metrics where to report operations
+     * @return the codebook described by the header
+     * @throws IllegalArgumentException if the header or metrics is null, or the header is
+     *                                  malformed, or does not describe a complete prefix code of at
+     *                                  least 2 characters
+     */
+    public static Huffman fromHeader(ByteBuffer header, HuffmanMetrics metrics) {
+        if (header == null || metrics == null) {
+            throw new IllegalArgumentException();
+        }
+        long start = startTime(metrics);
+        try {
+            int maxLength = header.get() & 0xFF;
+            if (maxLength < 1 || maxLength > BitReader.WINDOW_BITS) {
+                throw new IllegalArgumentException();
+            }
+            int[] counts = new int[maxLength + 1];
+            int total = 0;
+            long kraft = 0;
+            for (int len = 1; len <= maxLength; len++) {
+                counts[len] = getVarint(header);
+                total += counts[len];
+                if (counts[len] < 0 || counts[len] > 1L << len || total > 1 << 16) {
+                    throw new IllegalArgumentException();
+                }
+                kraft += (long) counts[len] << (maxLength - len);
+            }
+            if (total < 2 || kraft != 1L << maxLength) {
+                throw new IllegalArgumentException();
+            }
+
+            char[] symbols = new char[total];
+            int[] lengths = new int[total];
+            Set<Character> seen = new HashSet<>();
+            int i = 0;
+            for (int len = 1; len <= maxLength; len++) {
+                int prev = 0;
+                for (int j = 0; j < counts[len]; j++) {
+                    int delta = getVarint(header);
+                    int c = (j == 0 ? 0 : prev) + delta;
+                    if (delta < 0 || (j > 0 && delta == 0) || c > Character.MAX_VALUE
+                            || !seen.add((char) c)) {
+                        throw new IllegalArgumentException();
+                    }
+                    symbols[i] = (char) c;
+                    lengths[i] = len;
+                    prev = c;
+                    i++;
+                }
+            }
+            return new Huffman(metrics, start, symbols, lengths,
+                    Collections.<Character, Integer>emptyMap(), null);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Rebuilds a canonical codebook from a header written by {@link #getHeader()}.
+     *
+     * @param header the header bytes
+     * @return the codebook described by the header
+     * @throws IllegalArgumentException if the header is null or malformed
+     * @see #fromHeader(ByteBuffer)
+     */
+    public static Huffman fromHeader(byte[] header) {
+        return fromHeader(header, HuffmanMetrics.NOOP);
+    }
+
+    /**
+     * Rebuilds a canonical codebook from a header written by {@link #getHeader()} that reports
+     * its build and every later operation to the given metrics.
+     *
+     * @param header  the header bytes
+     * @param metrics where to report operations
+     * @return the codebook described by the header
+     * @throws IllegalArgumentException if the header or metrics is null, or the header is
+     *                                  malformed
+     * @see #fromHeader(ByteBuffer, HuffmanMetrics)
+     */
+    public static Huffman fromHeader(byte[] header, HuffmanMetrics metrics) {
+        if (header == null) {
+            throw new IllegalArgumentException();
+        }
+        return fromHeader(ByteBuffer.wrap(header), metrics);
+    }
+
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+
+    /**
+     * Returns the seed string, or for a codebook built from a frequency map, a string with each
+     * character repeated as often as its frequency, built on first use.
+     *
+     * @return the seed string, or null if the frequencies are unknown
+     */
     public String getSeedString() {
-        return seedString;
+        String seed = seedString;
+        if (seed == null && totalLengthString > 0) {
+            StringBuilder sString = new StringBuilder();
+            for (Map.Entry<Character, Integer> e : alphabetFreq.entrySet()) {
+                for (int j = 0; j < e.getValue(); j++) {
+                    sString.append(e.getKey());
+                }
+            }
+            seed = sString.toString();
+            seedString = seed;
+        }
+        return seed;
+    }
+
+    /**
+     * @param c a character
+     * @return the length of the code for {@code c}, or 0 if it is not compressible
+     */
+    int codeLength(char c) {
+        return isPresent(c) ? lengths[c] : 0;
+    }
+
+    /**
+     * @param c a compressible character
+     * @return the code for {@code c}, right-aligned
+     */
+    long code(char c) {
+        return codes[c];
+    }
+
+    /**
+     * @return the number of characters in the alphabet
+     */
+    int alphabetSize() {
+        return symbols.length;
+    }
+
+    DecodeTable getDecodeTable() {
+        return decodeTable;
     }
 
     public void setBinaryEncoder(String be) {
-        binaryEncoder = be;
+        lastOutputNonEmpty = be != null && !be.isEmpty();
     }
 
-    private void recBits(TreeNode tn, StringBuilder bit) {
-        if (tn.isLeaf()) {
-            tn.setBit(bit.toString());
-            alphabetBE.put(tn.alphabets.charAt(0), bit.toString());
-        } else {
-            recBits(tn.getLeft(), new StringBuilder(bit).append("0"));
-            recBits(tn.getRight(), new StringBuilder(bit).append("1"));
+    /**
+     * Gives each leaf the code spelled by the path to it, walking the tree with an explicit stack
+     * so that deep trees cannot overflow the call stack.
+     */
+    private void assignCodes(CodeTree t) {
+        int[] nodes = new int[t.size()];
+        long[] pathCodes = new long[t.size()];
+        int[] depths = new int[t.size()];
+        int top = 0;
+        nodes[top++] = t.root();
+        while (top > 0) {
+            top--;
+            int node = nodes[top];
+            long code = pathCodes[top];
+            int depth = depths[top];
+            if (t.isLeaf(node)) {
+                setCode(t.symbol(node), code, depth);
+                continue;
+            }
+            nodes[top] = t.right(node);
+            pathCodes[top] = (code << 1) | 1;
+            depths[top++] = depth + 1;
+            nodes[top] = t.left(node);
+            pathCodes[top] = code << 1;
+            depths[top++] = depth + 1;
         }
     }
 
@@ -147,38 +1005,276 @@ public class Huffman {
      *                                  that are not compressible
      */
     public String compress(String input) {
-        if (input == null) {
+        HuffmanMetrics m = metrics;
+        long start = startTime(m);
+        long bits = encodedLength(input);
+        if (bits > Integer.MAX_VALUE) {
             throw new IllegalArgumentException();
         }
-        inputLengthString += input.length();
-        StringBuilder output = new StringBuilder();
+        StringBuilder output = new StringBuilder((int) bits);
 
         for (int i = 0; i < input.length(); i++) {
-            if (!alphabetFreq.containsKey(input.charAt(i))) {
+            char c = input.charAt(i);
+            long code = codes[c];
+            for (int b = lengths[c] - 1; b >= 0; b--) {
+                output.append((char) ('0' + ((code >>> b) & 1)));
+            }
+        }
+
+        String result = output.toString();
+        record(input.length(), bits, m, start);
+        return result;
+    }
+
+    private void record(long inputLength, long bits, HuffmanMetrics m, long start) {
+        inputLengthString.add(inputLength);
+        binaryEncoderLengthString.add(bits);
+        boolean nonEmpty = bits > 0;
+        if (lastOutputNonEmpty != nonEmpty) {
+            lastOutputNonEmpty = nonEmpty;
+        }
+        m.compressed(inputLength, bits, elapsed(m, start));
+    }
+
+    private long encodedLength(String input) {
+        if (input == null) {
+            throw new IllegalArgumentException();
+        }
+        long bits = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (!isPresent(c)) {
                 throw new IllegalArgumentException();
             }
-            output.append(alphabetBE.get(input.charAt(i)));
+            bits += lengths[c];
         }
+        return bits;
+    }
 
-        binaryEncoderLengthString += output.toString().length();
-        binaryEncoder = output.toString();
-        return output.toString();
+    private void encode(String input, BitWriter out, long bits, HuffmanMetrics m, long start) {
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            out.write(codes[c], lengths[c]);
+        }
+        out.flush();
+
+        record(input.length(), bits, m, start);
     }
 
-    private int recCharDecompress(TreeNode tn, StringBuilder decInput, String input, int index) {
-        if (tn.isLeaf()) {
-            decInput.append(tn.getAlphabets());
-            return index;
-        } else {
-            if (index == input.length()) {
+    /**
+     * Compresses the input string into packed bits, eight to a byte, most significant bit first.
+     * The last byte is padded with zeroes, so the exact bit length must be kept alongside the
+     * bytes; it is {@code 8 * length} minus the padding, and is also reported by {@link
+     * #compressTo(String, ByteBuffer)}.
+     *
+     * @param input the string to compress, can be the empty string
+     * @return the packed binary encoding of the input
+     * @throws IllegalArgumentException if the input is null or if the input contains characters
+     *                                  that are not compressible
+     */
+    public byte[] compressToBytes(String input) {
+        HuffmanMetrics m = metrics;
+        long start = startTime(m);
+        long bits = encodedLength(input);
+        if ((bits + 7) / 8 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        byte[] output = new byte[(int) ((bits + 7) / 8)];
+        encode(input, new BitWriter(ByteBuffer.wrap(output)), bits, m, start);
+        return output;
+    }
+
+    /**
+     * Compresses the input string into packed bits written at the position of the given buffer,
+     * most significant bit first. The last byte is padded with zeroes. Nothing is written if the
+     * input is not compressible or the buffer is too small.
+     *
+     * @param input the string to compress, can be the empty string
+     * @param dst   the buffer to write to
+     * @return the number of bits written, not counting padding
+     * @throws IllegalArgumentException if the input or buffer is null, or if the input contains
+     *                                  characters that are not compressible
+     * @throws java.nio.BufferOverflowException if the buffer does not have enough remaining space
+     */
+    public long compressTo(String input, ByteBuffer dst) {
+        HuffmanMetrics m = metrics;
+        long start = startTime(m);
+        long bits = encodedLength(input);
+        if (dst == null) {
+            throw new IllegalArgumentException();
+        }
+        if (dst.remaining() < (bits + 7) / 8) {
+            throw new BufferOverflowException();
+        }
+        encode(input, new BitWriter(dst), bits, m, start);
+        return bits;
+    }
+
+    /**
+     * Compresses the characters {@code input[start, end)} into packed bits written at the position
+     * of the given buffer, without allocating. Bits are packed as by {@link #compressTo(String,
+     * ByteBuffer)}, and nothing is written if the input is not compressible or the buffer is too
+     * small.
+     *
+     * @param input the characters to compress
+     * @param start the index of the first character to compress
+     * @param end   the index after the last character to compress
+     * @param dst   the buffer to write to
+     * @return the number of bits written, not counting padding
+     * @throws IllegalArgumentException if the input or buffer is null, the range is not within the
+     *                                  input, or the range contains characters that are not
+     *                                  compressible
+     * @throws BufferOverflowException  if the buffer does not have enough remaining space
+     */
+    public long compressTo(CharSequence input, int start, int end, ByteBuffer dst) {
+        if (input == null || dst == null || start < 0 || start > end || end > input.length()) {
+            throw new IllegalArgumentException();
+        }
+        return encodeRange(input, null, start, end, null, dst);
+    }
+
+    /**
+     * Compresses {@code length} characters of an array, starting at {@code offset}, into packed
+     * bits written at the position of the given buffer, without allocating.
+     *
+     * @param input  the characters to compress
+     * @param offset the index of the first character to compress
+     * @param length the number of characters to compress
+     * @param dst    the buffer to write to
+     * @return the number of bits written, not counting padding
+     * @throws IllegalArgumentException if the input or buffer is null, the range is not within the
+     *                                  input, or the range contains characters that are not
+     *                                  compressible
+     * @throws BufferOverflowException  if the buffer does not have enough remaining space
+     * @see #compressTo(CharSequence, int, int, ByteBuffer)
+     */
+    public long compressTo(char[] input, int offset, int length, ByteBuffer dst) {
+        if (input == null || dst == null || offset < 0 || length < 0
+                || length > input.length - offset) {
+            throw new IllegalArgumentException();
+        }
+        return encodeRange(null, input, offset, offset + length, null, dst);
+    }
+
+    /**
+     * Compresses the characters {@code input[start, end)} into packed bits written from the start
+     * of {@code dst}, without allocating. Bits fill each word from its most significant bit, and
+     * the last word used is padded with zeroes. Nothing is written if the input is not
+     * compressible or the array is too small.
+     *
+     * @param input the characters to compress
+     * @param start the index of the first character to compress
+     * @param end   the index after the last character to compress
+     * @param dst   the words to write to
+     * @return the number of bits written, not counting padding
+     * @throws IllegalArgumentException if the input or array is null, the range is not within the
+     *                                  input, or the range contains characters that are not
+     *                                  compressible
+     * @throws BufferOverflowException  if the array is too short to hold the bits
+     */
+    public long compressTo(CharSequence input, int start, int end, long[] dst) {
+        if (input == null || dst == null || start < 0 || start > end || end > input.length()) {
+            throw new IllegalArgumentException();
+        }
+        return encodeRange(input, null, start, end, dst, null);
+    }
+
+    /**
+     * Compresses {@code length} characters of an array, starting at {@code offset}, into packed
+     * bits written from the start of {@code dst}, without allocating.
+     *
+     * @param input  the characters to compress
+     * @param offset the index of the first character to compress
+     * @param length the number of characters to compress
+     * @param dst    the words to write to
+     * @return the number of bits written, not counting padding
+     * @throws IllegalArgumentException if the input or array is null, the range is not within the
+     *                                  input, or the range contains characters that are not
+     *                                  compressible
+     * @throws BufferOverflowException  if the array is too short to hold the bits
+     * @see #compressTo(CharSequence, int, int, long[])
+     */
+    public long compressTo(char[] input, int offset, int length, long[] dst) {
+        if (input == null || dst == null || offset < 0 || length < 0
+                || length > input.length - offset) {
+            throw new IllegalArgumentException();
+        }
+        return encodeRange(null, input, offset, offset + length, dst, null);
+    }
+
+    /**
+     * Encodes a range of either a sequence or an array into either words or a buffer, checking
+     * the characters and the space before anything is written and packing with {@link #pack}, so
+     * that nothing is allocated.
+     */
+    private long encodeRange(CharSequence seq, char[] arr, int start, int end,
+                             long[] words, ByteBuffer buf) {
+        HuffmanMetrics m = metrics;
+        long startTime = startTime(m);
+        long bits = 0;
+        for (int i = start; i < end; i++) {
+            char c = arr != null ? arr[i] : seq.charAt(i);
+            if (!isPresent(c)) {
                 throw new IllegalArgumentException();
             }
-            if (input.charAt(index) == '0') {
-                return recCharDecompress(tn.getLeft(), decInput, input, index + 1);
+            bits += lengths[c];
+        }
+        if (words != null ? words.length < (bits + 63) / 64 : buf.remaining() < (bits + 7) / 8) {
+            throw new BufferOverflowException();
+        }
+
+        pack(seq, arr, start, end, words, buf, 0);
+
+        record(end - start, bits, m, startTime);
+        return bits;
+    }
+
+    /**
+     * Packs the codes of a range of either a sequence or an array into either words or a buffer,
+     * the one loop behind {@link #encodeRange} and {@link #compressBatch(List)}. Words are written
+     * from bit {@code pos}, continuing the partial word left there by an earlier call, and the
+     * last word used is stored padded with zeroes. A buffer is always written from {@code pos} 0
+     * and its last byte padded. The caller has already checked the characters and the space.
+     *
+     * @return the bit position after the last code written
+     */
+    private long pack(CharSequence seq, char[] arr, int start, int end,
+                      long[] words, ByteBuffer buf, long pos) {
+        boolean bigEndian = buf == null || buf.order() == ByteOrder.BIG_ENDIAN;
+        int word = (int) (pos >>> 6);
+        int free = 64 - (int) (pos & 63);
+        long acc = free < 64 ? words[word] : 0;
+        for (int i = start; i < end; i++) {
+            char c = arr != null ? arr[i] : seq.charAt(i);
+            long code = codes[c];
+            int length = lengths[c];
+            if (length < free) {
+                acc |= code << (free - length);
+                free -= length;
+            } else {
+                int leftover = length - free;
+                acc |= code >>> leftover;
+                if (words != null) {
+                    words[word] = acc;
+                } else {
+                    buf.putLong(bigEndian ? acc : Long.reverseBytes(acc));
+                }
+                word++;
+                acc = leftover == 0 ? 0 : code << (64 - leftover);
+                free = 64 - leftover;
+            }
+        }
+        if (free < 64) {
+            if (words != null) {
+                words[word] = acc;
             } else {
-                return recCharDecompress(tn.getRight(), decInput, input, index + 1);
+                for (int used = 64 - free; used > 0; used -= 8) {
+                    buf.put((byte) (acc >>> 56));
+                    acc <<= 8;
+                }
             }
         }
+        return 64L * word + 64 - free;
     }
 
     /**
@@ -195,25 +1291,382 @@ public class Huffman {
         if (input == null) {
             throw new IllegalArgumentException();
         }
-        for (int i = 0; i < input.length(); i++) {
-            if ((input.charAt(i) - 48) < 0 || (input.charAt(i) - 48) > 1) {
+        return decompress(BitReader.pack(input), input.length());
+    }
+
+    /**
+     * Compresses the input on the common {@link ForkJoinPool}.
+     *
+     * @param input the characters to compress, can be empty
+     * @return the compressed blocks
+     * @throws IllegalArgumentException if the input is null or if the input contains characters
+     *                                  that are not compressible
+     * @see #compressParallel(CharSequence, ForkJoinPool)
+     */
+    public byte[] compressParallel(CharSequence input) {
+        return compressParallel(input, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compresses the input by splitting it into chunks of {@link #PARALLEL_CHUNK} characters and
+     * encoding the chunks concurrently on the given pool. The result is in the block format of
+     * {@link HuffmanOutputStream}, with every chunk starting a new block, and can be read back
+     * with {@link HuffmanInputStream}.
+     *
+     * @param input the characters to compress, can be empty
+     * @param pool  the pool to encode on
+     * @return the compressed blocks
+     * @throws IllegalArgumentException if the input or pool is null, or if the input contains
+     *                                  characters that are not compressible
+     */
+    public byte[] compressParallel(CharSequence input, ForkJoinPool pool) {
+        if (input == null || pool == null) {
+            throw new IllegalArgumentException();
+        }
+        HuffmanMetrics m = metrics;
+        long start = startTime(m);
+        int chunks = (input.length() + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        byte[][] parts = new byte[chunks][];
+        long[] bits = new long[chunks];
+        if (chunks > 0) {
+            pool.invoke(new EncodeTask(input, parts, bits, 0, chunks));
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long totalBits = 0;
+        for (int i = 0; i < chunks; i++) {
+            output.write(parts[i], 0, parts[i].length);
+            totalBits += bits[i];
+        }
+        output.write(new byte[4], 0, 4);
+
+        record(input.length(), totalBits, m, start);
+        return output.toByteArray();
+    }
+
+    private class EncodeTask extends RecursiveAction {
+        // tasks are never serialized; the input need not be serializable
+        private static final long serialVersionUID = 1L;
+
+        private final transient CharSequence input;
+        private final byte[][] parts;
+        private final long[] bits;
+        private final int from, to;
+
+        EncodeTask(CharSequence input, byte[][] parts, long[] bits, int from, int to) {
+            this.input = input;
+            this.parts = parts;
+            this.bits = bits;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EncodeTask(input, parts, bits, from, mid),
+                        new EncodeTask(input, parts, bits, mid, to));
+                return;
+            }
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            HuffmanOutputStream out = new HuffmanOutputStream(chunk, Huffman.this);
+            int end = Math.min(input.length(), (from + 1) * PARALLEL_CHUNK);
+            try {
+                out.write(input.subSequence(from * PARALLEL_CHUNK, end));
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            parts[from] = chunk.toByteArray();
+            bits[from] = out.bitCount();
+        }
+    }
+
+    /**
+     * Compresses many messages back to back into one bit buffer, with an index of where each one
+     * starts. Checking, sizing and statistics are done once for the whole batch rather than once
+     * per message, and no per-message strings or buffers are created, so batches of short
+     * messages compress much faster than calling {@link #compress(String)} on each.
+     *
+     * @param messages the messages to compress, any of which can be empty
+     * @return the compressed batch
+     * @throws IllegalArgumentException if the list or any message is null, if any message contains
+     *                                  characters that are not compressible, or if the batch would
+     *                                  be too large for one array
+     */
+    public CompressedBatch compressBatch(List<? extends CharSequence> messages) {
+        if (messages == null) {
+            throw new IllegalArgumentException();
+        }
+        HuffmanMetrics m = metrics;
+        long start = startTime(m);
+        long[] offsets = new long[messages.size() + 1];
+        long bits = 0;
+        long chars = 0;
+        int k = 0;
+        for (CharSequence message : messages) {
+            if (message == null) {
                 throw new IllegalArgumentException();
             }
+            for (int i = 0; i < message.length(); i++) {
+                char c = message.charAt(i);
+                if (!isPresent(c)) {
+                    throw new IllegalArgumentException();
+                }
+                bits += lengths[c];
+            }
+            chars += message.length();
+            offsets[++k] = bits;
         }
-        TreeNode tn = treeNode;
+        if ((bits + 63) / 64 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+
+        long[] words = new long[(int) ((bits + 63) / 64)];
+        long pos = 0;
+        for (CharSequence message : messages) {
+            pos = pack(message, null, 0, message.length(), words, null, pos);
+        }
+
+        record(chars, bits, m, start);
+        return new CompressedBatch(words, offsets);
+    }
+
+    /**
+     * Decompresses every message of a batch produced by {@link #compressBatch(List)}.
+     *
+     * @param batch the compressed batch
+     * @return the messages, in order
+     * @throws IllegalArgumentException if the batch is null or any message is not decodable
+     */
+    public List<String> decompressBatch(CompressedBatch batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException();
+        }
+        HuffmanMetrics m = metrics;
+        long start = startTime(m);
+        long maxBits = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            maxBits = Math.max(maxBits, batch.bitLength(i));
+        }
+        // every code is at least one bit long, so no message has more characters than bits
+        char[] scratch = new char[(int) Math.min(maxBits, Integer.MAX_VALUE - 8)];
+        List<String> messages = new ArrayList<>(batch.size());
+        long chars = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            int count = decodeBits(null, batch.words(), batch.bitOffset(i), batch.bitLength(i),
+                    scratch, 0, scratch.length, null);
+            messages.add(new String(scratch, 0, count));
+            chars += count;
+        }
+        m.decompressed(batch.totalBits(), chars, elapsed(m, start));
+        return messages;
+    }
+
+    /**
+     * Decompresses one message of a batch produced by {@link #compressBatch(List)}, without
+     * decoding the others.
+     *
+     * @param batch the compressed batch
+     * @param index the index of the message
+     * @return the message
+     * @throws IllegalArgumentException if the batch is null, the index is not that of a message,
+     *                                  or the message is not decodable
+     */
+    public String decompressBatch(CompressedBatch batch, int index) {
+        if (batch == null || index < 0 || index >= batch.size()) {
+            throw new IllegalArgumentException();
+        }
+        long bitLength = batch.bitLength(index);
+        char[] chars = new char[(int) Math.min(bitLength, Integer.MAX_VALUE - 8)];
+        int count = decodeRange(null, batch.words(), batch.bitOffset(index), bitLength,
+                chars, 0, chars.length, null);
+        return new String(chars, 0, count);
+    }
+
+    /**
+     * Decompresses packed bits produced by {@link #compressToBytes(String)} or {@link
+     * #compressTo(String, ByteBuffer)}.
+     *
+     * @param input     the packed bits, most significant bit first
+     * @param bitLength the number of bits of input to decode, ignoring any padding
+     * @return the decoded version of the compressed input
+     * @throws IllegalArgumentException if the input is null, the bit length is negative or longer
+     *                                  than the input, or the bits are not decodable
+     */
+    public String decompress(byte[] input, long bitLength) {
+        if (input == null) {
+            throw new IllegalArgumentException();
+        }
+        if (bitLength < 0 || bitLength > 8L * input.length) {
+            throw new IllegalArgumentException();
+        }
+        HuffmanMetrics m = metrics;
+        long start = startTime(m);
         StringBuilder decInput = new StringBuilder();
+        decodeTable.decode(new BitReader(ByteBuffer.wrap(input), bitLength), decInput);
+        String result = decInput.toString();
+        m.decompressed(bitLength, result.length(), elapsed(m, start));
+        return result;
+    }
+
+    /**
+     * Decompresses {@code bitLength} bits from the position of {@code src} into {@code dst},
+     * starting at {@code offset}, without allocating. {@code src} is left just past the byte
+     * holding the last bit.
+     *
+     * @param src       the packed bits, most significant bit first
+     * @param bitLength the number of bits to decode, ignoring any padding
+     * @param dst       the array to write decoded characters to
+     * @param offset    the index of {@code dst} at which to write the first character
+     * @return the number of characters written
+     * @throws IllegalArgumentException if either argument is null, the bit length is negative or
+     *                                  longer than {@code src}, the offset is not within {@code
+     *                                  dst}, or the bits are not decodable
+     * @throws BufferOverflowException  if {@code dst} fills up before the input is decoded; the
+     *                                  characters that fit have been written
+     */
+    public int decompressTo(ByteBuffer src, long bitLength, char[] dst, int offset) {
+        if (src == null || dst == null || bitLength < 0 || bitLength > 8L * src.remaining()
+                || offset < 0 || offset > dst.length) {
+            throw new IllegalArgumentException();
+        }
+        int count = decodeRange(src, null, 0, bitLength, dst, offset, dst.length - offset, null);
+        src.position(src.position() + (int) ((bitLength + 7) / 8));
+        return count;
+    }
 
-        int index = 0;
-        while (index < input.length()) {
-            index = recCharDecompress(tn, decInput, input, index);
+    /**
+     * Decompresses {@code bitLength} bits from the position of {@code src} into the position of
+     * {@code dst}, advancing both, without allocating.
+     *
+     * @param src       the packed bits, most significant bit first
+     * @param bitLength the number of bits to decode, ignoring any padding
+     * @param dst       the buffer to write decoded characters to
+     * @return the number of characters written
+     * @throws IllegalArgumentException if either buffer is null, the bit length is negative or
+     *                                  longer than {@code src}, or the bits are not decodable
+     * @throws BufferOverflowException  if {@code dst} fills up before the input is decoded; the
+     *                                  characters that fit have been written
+     * @see #decompressTo(ByteBuffer, long, char[], int)
+     */
+    public int decompressTo(ByteBuffer src, long bitLength, CharBuffer dst) {
+        if (src == null || dst == null || bitLength < 0 || bitLength > 8L * src.remaining()) {
+            throw new IllegalArgumentException();
         }
+        int count = decodeRange(src, null, 0, bitLength, null, 0, dst.remaining(), dst);
+        src.position(src.position() + (int) ((bitLength + 7) / 8));
+        return count;
+    }
+
+    /**
+     * Decompresses bits written by {@link #compressTo(CharSequence, int, int, long[])} into {@code
+     * dst}, starting at {@code offset}, without allocating.
+     *
+     * @param src       the packed words, each filled from its most significant bit
+     * @param bitLength the number of bits to decode, ignoring any padding
+     * @param dst       the array to write decoded characters to
+     * @param offset    the index of {@code dst} at which to write the first character
+     * @return the number of characters written
+     * @throws IllegalArgumentException if either array is null, the bit length is negative or
+     *                                  longer than {@code src}, the offset is not within {@code
+     *                                  dst}, or the bits are not decodable
+     * @throws BufferOverflowException  if {@code dst} fills up before the input is decoded; the
+     *                                  characters that fit have been written
+     */
+    public int decompressTo(long[] src, long bitLength, char[] dst, int offset) {
+        if (src == null || dst == null || bitLength < 0 || bitLength > 64L * src.length
+                || offset < 0 || offset > dst.length) {
+            throw new IllegalArgumentException();
+        }
+        return decodeRange(null, src, 0, bitLength, dst, offset, dst.length - offset, null);
+    }
+
+    /**
+     * Decodes bits from either a buffer, read at absolute indices from its position, or words,
+     * into either an array or a character buffer.
+     */
+    private int decodeRange(ByteBuffer buf, long[] words, long from, long bitLength,
+                            char[] arr, int offset, int capacity, CharBuffer chars) {
+        HuffmanMetrics m = metrics;
+        long start = startTime(m);
+        int count = decodeBits(buf, words, from, bitLength, arr, offset, capacity, chars);
+        m.decompressed(bitLength, count, elapsed(m, start));
+        return count;
+    }
 
-        return decInput.toString();
+    /**
+     * Decodes {@code bitLength} bits, starting {@code from} bits into the words or into the
+     * buffer's remaining bytes, without reporting to the metrics.
+     */
+    private int decodeBits(ByteBuffer buf, long[] words, long from, long bitLength,
+                           char[] arr, int offset, int capacity, CharBuffer chars) {
+        int base = buf == null ? 0 : buf.position();
+        int limit = base + (int) ((from + bitLength + 7) / 8);
+        boolean bigEndian = buf == null || buf.order() == ByteOrder.BIG_ENDIAN;
+        long end = from + bitLength;
+        int count = 0;
+        long pos = from;
+        while (pos < end) {
+            long window = words != null
+                    ? wordWindow(words, pos) : byteWindow(buf, base, limit, bigEndian, pos);
+            int entry = decodeTable.decode(window);
+            int length = entry & 0xFF;
+            if (entry == 0 || length > end - pos) {
+                throw new IllegalArgumentException();
+            }
+            if (count == capacity) {
+                throw new BufferOverflowException();
+            }
+            if (chars != null) {
+                chars.put((char) (entry >>> 8));
+            } else {
+                arr[offset + count] = (char) (entry >>> 8);
+            }
+            count++;
+            pos += length;
+        }
+        return count;
+    }
+
+    /**
+     * @return the 64 bits of {@code words} from bit {@code pos}, left-aligned, with zeroes past
+     * the end
+     */
+    private static long wordWindow(long[] words, long pos) {
+        int i = (int) (pos >>> 6);
+        int shift = (int) (pos & 63);
+        long window = words[i] << shift;
+        if (shift != 0 && i + 1 < words.length) {
+            window |= words[i + 1] >>> (64 - shift);
+        }
+        return window;
+    }
+
+    /**
+     * @return at least 57 bits of {@code buf} from bit {@code pos} after index {@code base},
+     * left-aligned, reading no byte at or past {@code limit}
+     */
+    private static long byteWindow(ByteBuffer buf, int base, int limit, boolean bigEndian,
+                                   long pos) {
+        int i = base + (int) (pos >>> 3);
+        int shift = (int) (pos & 7);
+        if (i + 8 <= limit) {
+            long window = buf.getLong(i);
+            return (bigEndian ? window : Long.reverseBytes(window)) << shift;
+        }
+        long window = 0;
+        for (int k = 0; k < 8 && i + k < limit; k++) {
+            window |= (buf.get(i + k) & 0xFFL) << (56 - 8 * k);
+        }
+        return window << shift;
     }
 
     /**
      * Computes the compression ratio so far. This is the length of all output strings from {@link
      * #compress(String)} divided by the length of all input strings to {@link #compress(String)}.
+     * Packed output from {@link #compressToBytes(String)} counts its bits the same way.
      * Assume that each char in the input string is a 16 bit int.
      *
      * @return the ratio of the total output length to the total input length in bits
@@ -221,22 +1674,10 @@ public class Huffman {
      *                               calling this method
      */
     public double compressionRatio() {
-        if (binaryEncoder == null || binaryEncoder.length() == 0) {
+        if (!lastOutputNonEmpty) {
             throw new IllegalStateException();
         }
-        return (double) binaryEncoderLengthString / (double) (inputLengthString * 16.0);
-    }
-
-    private double recExpectedEncodingLength(TreeNode tn) {
-        double output = 0;
-        if (tn.isLeaf()) {
-            return (double) tn.bits.length() * ((double) tn.freq / (double) totalLengthString);
-        }
-
-        output += recExpectedEncodingLength(tn.getLeft());
-        output += recExpectedEncodingLength(tn.getRight());
-
-        return output;
+        return (double) binaryEncoderLengthString.sum() / (inputLengthString.sum() * 16.0);
     }
 
     /**
@@ -247,61 +1688,103 @@ public class Huffman {
      * character multiplied by the probability that character occurs.
      *
      * @return the expected encoding length of an arbitrary character in the alphabet
+     * @throws IllegalStateException if the frequencies are unknown, as for a codebook built by
+     *                               {@link #fromHeader(ByteBuffer)}
      */
     public double expectedEncodingLength() {
-        return recExpectedEncodingLength(treeNode);
+        if (totalLengthString == 0) {
+            throw new IllegalStateException();
+        }
+        long bits = 0;
+        for (char c : symbols) {
+            bits += (long) lengths[c] * alphabetFreq.get(c);
+        }
+        return (double) bits / totalLengthString;
     }
 
-    class TreeNode {
-        private String alphabets;
-        private TreeNode left, right;
-        private boolean isLeaf;
-        private String bits;
-        private int freq;
-
-        public TreeNode(String s, int freq) {
-            isLeaf = true;
-            alphabets = s;
-            this.freq = freq;
+    /**
+     * Computes how much longer the {@link #expectedEncodingLength() expected encoding length} is
+     * than that of an unrestricted Huffman code for the same frequencies. This is 0 except for
+     * codebooks built with a maximum code length.
+     *
+     * @return the expected number of extra bits per character caused by limiting code lengths
+     * @throws IllegalStateException if the frequencies are unknown, as for a codebook built by
+     *                               {@link #fromHeader(ByteBuffer)}
+     */
+    public double lengthLimitPenalty() {
+        double expected = expectedEncodingLength();
+        int[] freq = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            freq[i] = alphabetFreq.get(symbols[i]);
         }
+        int[] order = sortByFrequency(freq);
 
-        public TreeNode(TreeNode left, TreeNode right, int freq) {
-            isLeaf = false;
-            this.left = left;
-            this.right = right;
-            StringBuilder sb = new StringBuilder();
-            sb.append(left.alphabets);
-            sb.append(right.alphabets);
-            alphabets = sb.toString();
-            this.freq = freq;
+        // the expected length of a Huffman code is the sum of its merged weights over the total
+        long[] merged = new long[symbols.length - 1];
+        long cost = 0;
+        int nextLeaf = 0;
+        int head = 0;
+        for (int tail = 0; tail < merged.length; tail++) {
+            long sum = 0;
+            for (int k = 0; k < 2; k++) {
+                if (nextLeaf < freq.length && (head == tail || freq[order[nextLeaf]] <= merged[head])) {
+                    sum += freq[order[nextLeaf++]];
+                } else {
+                    sum += merged[head++];
+                }
+            }
+            merged[tail] = sum;
+            cost += sum;
         }
+        return Math.max(0, expected - (double) cost / totalLengthString);
+    }
+
+    /**
+     * A read-only view of one node of the code tree.
+     */
+    class TreeNode {
+        private final CodeTree tree;
+        private final int node;
 
-        public void setBit(String input) {
-            this.bits = input;
+        private TreeNode(CodeTree tree, int node) {
+            this.tree = tree;
+            this.node = node;
         }
 
+        /**
+         * @return the code of a leaf as a string of ones and zeroes, or null for an internal node
+         */
         public String getBits() {
-            return bits;
+            return tree.isLeaf(node) ? bitString(tree.symbol(node)) : null;
         }
 
+        /**
+         * @return the left child, or null for a leaf
+         */
         public TreeNode getLeft() {
-            return left;
+            return tree.isLeaf(node) ? null : new TreeNode(tree, tree.left(node));
         }
 
+        /**
+         * @return the right child, or null for a leaf
+         */
         public TreeNode getRight() {
-            return right;
+            return tree.isLeaf(node) ? null : new TreeNode(tree, tree.right(node));
         }
 
         public int getFreq() {
-            return freq;
+            return tree.freq(node);
         }
 
+        /**
+         * @return the characters under this node from left to right, built on each call
+         */
         public String getAlphabets() {
-            return alphabets;
+            return tree.symbols(node);
         }
 
         public boolean isLeaf() {
-            return isLeaf;
+            return tree.isLeaf(node);
         }
     }
-}
\ No newline at end of file
+}
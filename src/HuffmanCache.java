@@ -0,0 +1,190 @@
+import java.util.*;
+
+/**
+ * A bounded, thread-safe cache of codebooks built from frequency maps, so that callers who see the
+ * same alphabet again get the codebook already built for it instead of constructing a new {@link
+ * Huffman}. Entries are looked up by a 64-bit fingerprint of the frequency map and confirmed by
+ * comparing the maps, so a fingerprint collision never returns the wrong codebook.
+ * <p>
+ * The least recently used codebooks are evicted once there are more than {@code maxEntries} of
+ * them, or once their total weight, the number of characters in their alphabets, is more than
+ * {@code maxWeight}. A codebook whose own weight is more than {@code maxWeight} is returned but
+ * not kept.
+ * <p>
+ * The same {@code Huffman} instance is returned to every caller with an equal frequency map, so
+ * callers share its statistics such as {@link Huffman#compressionRatio()}.
+ */
+public class HuffmanCache {
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Huffman> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a cache limited only by its number of entries.
+     *
+     * @param maxEntries the most codebooks to keep
+     * @throws IllegalArgumentException if maxEntries is less than 1
+     */
+    public HuffmanCache(int maxEntries) {
+        this(maxEntries, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a cache limited by its number of entries and their total weight.
+     *
+     * @param maxEntries the most codebooks to keep
+     * @param maxWeight  the most characters to keep across all cached alphabets
+     * @throws IllegalArgumentException if maxEntries or maxWeight is less than 1
+     */
+    public HuffmanCache(int maxEntries, long maxWeight) {
+        if (maxEntries < 1 || maxWeight < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the cached codebook for a frequency map, building and caching it on a miss. The map
+     * is copied before it is cached, so later changes to it do not affect the cache.
+     *
+     * @param alphabet a frequency map for characters in the alphabet
+     * @return a codebook equivalent to {@code new Huffman(alphabet)}
+     * @throws IllegalArgumentException if the alphabet is null, empty, has fewer than 2
+     *                                  characters, or has any non-positive frequencies
+     */
+    public Huffman get(Map<Character, Integer> alphabet) {
+        if (alphabet == null) {
+            throw new IllegalArgumentException();
+        }
+        Key key = new Key(alphabet);
+        synchronized (this) {
+            Huffman huffman = entries.get(key);
+            if (huffman != null) {
+                hits++;
+                return huffman;
+            }
+            misses++;
+        }
+
+        // built outside the lock so that a slow build does not hold up hits on other alphabets
+        Map<Character, Integer> copy = new LinkedHashMap<>(alphabet);
+        Huffman huffman = new Huffman(copy);
+        key = new Key(copy, key.fingerprint);
+        synchronized (this) {
+            Huffman raced = entries.get(key);
+            if (raced != null) {
+                return raced;
+            }
+            if (copy.size() > maxWeight) {
+                return huffman;
+            }
+            entries.put(key, huffman);
+            weight += copy.size();
+            Iterator<Key> eldest = entries.keySet().iterator();
+            while (entries.size() > maxEntries || weight > maxWeight) {
+                weight -= eldest.next().alphabet.size();
+                eldest.remove();
+                evictions++;
+            }
+        }
+        return huffman;
+    }
+
+    /**
+     * @return the number of lookups that found a cached codebook
+     */
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that had to build a codebook
+     */
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of codebooks evicted to stay within the limits
+     */
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of cached codebooks
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total number of characters across the cached alphabets
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Removes every cached codebook. The hit, miss and eviction counts are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Computes a fingerprint of a frequency map that does not depend on its iteration order, by
+     * summing a 64-bit mix of each character and its frequency.
+     */
+    static long fingerprint(Map<Character, Integer> alphabet) {
+        long sum = alphabet.size();
+        for (Map.Entry<Character, Integer> e : alphabet.entrySet()) {
+            long c = e.getKey() == null ? -1 : e.getKey();
+            long f = e.getValue() == null ? -1 : e.getValue();
+            sum += mix(c << 32 ^ (f & 0xFFFFFFFFL));
+        }
+        return sum;
+    }
+
+    // the finalizer of SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Key {
+        final Map<Character, Integer> alphabet;
+        final long fingerprint;
+
+        Key(Map<Character, Integer> alphabet) {
+            this(alphabet, fingerprint(alphabet));
+        }
+
+        Key(Map<Character, Integer> alphabet, long fingerprint) {
+            this.alphabet = alphabet;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (fingerprint ^ (fingerprint >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return fingerprint == other.fingerprint && alphabet.equals(other.alphabet);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class HuffmanCacheTest {
+
+    private static Map<Character, Integer> alphabet(String chars) {
+        Map<Character, Integer> freq = new HashMap<>();
+        for (int i = 0; i < chars.length(); i++) {
+            freq.put(chars.charAt(i), i + 1);
+        }
+        return freq;
+    }
+
+    //get()
+    @Test
+    public void getHitReturnsSameCodebook() {
+        HuffmanCache cache = new HuffmanCache(4);
+        Huffman first = cache.get(alphabet("abc"));
+        assertSame(first, cache.get(alphabet("abc")));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    public void getMatchesNewHuffman() {
+        Map<Character, Integer> freq = alphabet("AgosbZ");
+        Huffman cached = new HuffmanCache(4).get(freq);
+        Huffman built = new Huffman(freq);
+        assertEquals(built.compress("AgosbZ"), cached.compress("AgosbZ"));
+        assertEquals(built.expectedEncodingLength(), cached.expectedEncodingLength(), 0);
+    }
+
+    @Test
+    public void getDistinguishesFrequencies() {
+        HuffmanCache cache = new HuffmanCache(4);
+        Map<Character, Integer> freq = alphabet("abc");
+        Huffman first = cache.get(freq);
+        freq.put('a', 10);
+        assertNotSame(first, cache.get(freq));
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    public void getCopiesMap() {
+        HuffmanCache cache = new HuffmanCache(4);
+        Map<Character, Integer> freq = alphabet("abc");
+        Huffman first = cache.get(freq);
+        freq.put('d', 1);
+        assertSame(first, cache.get(alphabet("abc")));
+    }
+
+    @Test
+    public void getEvictsLeastRecentlyUsed() {
+        HuffmanCache cache = new HuffmanCache(2);
+        Huffman ab = cache.get(alphabet("ab"));
+        cache.get(alphabet("cd"));
+        cache.get(alphabet("ab"));
+        cache.get(alphabet("ef"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertSame(ab, cache.get(alphabet("ab")));
+        cache.get(alphabet("cd"));
+        assertEquals(4, cache.missCount());
+    }
+
+    @Test
+    public void getEvictsByWeight() {
+        HuffmanCache cache = new HuffmanCache(10, 5);
+        cache.get(alphabet("ab"));
+        cache.get(alphabet("cde"));
+        assertEquals(5, cache.weight());
+        cache.get(alphabet("fg"));
+        assertEquals(1, cache.evictionCount());
+        assertEquals(5, cache.weight());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void getTooHeavyNotCached() {
+        HuffmanCache cache = new HuffmanCache(10, 2);
+        cache.get(alphabet("ab"));
+        cache.get(alphabet("abc"));
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.weight());
+        cache.get(alphabet("abc"));
+        assertEquals(3, cache.missCount());
+    }
+
+    @Test
+    public void getConcurrent() throws Exception {
+        HuffmanCache cache = new HuffmanCache(3);
+        int threads = 8;
+        Set<Huffman> seen = Collections.synchronizedSet(
+                Collections.newSetFromMap(new IdentityHashMap<Huffman, Boolean>()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    Huffman huffman = cache.get(alphabet(i % 2 == 0 ? "abcd" : "wxyz"));
+                    assertEquals("abcd".length(), huffman.alphabetSize());
+                    seen.add(huffman);
+                }
+            }));
+        }
+        try {
+            // rethrows an assertion failed on a worker
+            for (Future<?> f : futures) {
+                f.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(8000, cache.hitCount() + cache.missCount());
+        assertEquals(2, cache.size());
+        assertTrue(seen.size() <= 2 * threads);
+    }
+
+    @Test
+    public void clear() {
+        HuffmanCache cache = new HuffmanCache(4);
+        cache.get(alphabet("ab"));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+        cache.get(alphabet("ab"));
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getNull() {
+        new HuffmanCache(4).get(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getInvalidAlphabet() {
+        Map<Character, Integer> freq = alphabet("ab");
+        freq.put('c', 0);
+        new HuffmanCache(4).get(freq);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorNonPositive() {
+        new HuffmanCache(0);
+    }
+
+    //fingerprint()
+    @Test
+    public void fingerprintIgnoresOrder() {
+        Map<Character, Integer> tree = new TreeMap<>(Collections.reverseOrder());
+        tree.putAll(alphabet("qwertyuiop"));
+        assertEquals(HuffmanCache.fingerprint(alphabet("qwertyuiop")), HuffmanCache.fingerprint(tree));
+    }
+}
@@ -0,0 +1,182 @@
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+
+/**
+ * A connection to a {@link HuffmanServer}. Requests are answered in order, so a client must not be
+ * shared between threads without synchronizing on it; open one client per thread instead, which
+ * on the server costs only a virtual thread.
+ */
+public class HuffmanClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    private HuffmanClient(SocketChannel channel) {
+        this.channel = channel;
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Connects to a server.
+     *
+     * @param address the server's TCP or Unix domain socket address
+     * @return the connected client
+     * @throws IllegalArgumentException if the address is null or of another kind
+     * @throws IOException              if the connection fails
+     */
+    public static HuffmanClient connect(SocketAddress address) throws IOException {
+        SocketChannel channel;
+        if (address instanceof InetSocketAddress) {
+            channel = SocketChannel.open();
+        } else if (address instanceof UnixDomainSocketAddress) {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            throw new IllegalArgumentException();
+        }
+        try {
+            channel.connect(address);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new HuffmanClient(channel);
+    }
+
+    /**
+     * Registers a codebook with the server, or finds the one already registered for the same
+     * frequencies.
+     *
+     * @param alphabet a frequency map for characters in the alphabet
+     * @return the codebook's id, valid for every client of the server
+     * @throws IllegalArgumentException if the alphabet is null, or the server rejects it as
+     *                                  {@link Huffman#Huffman(Map)} would
+     * @throws IOException              if the connection fails
+     */
+    public long register(Map<Character, Integer> alphabet) throws IOException {
+        if (alphabet == null) {
+            throw new IllegalArgumentException();
+        }
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(request);
+        data.writeByte(HuffmanServer.REGISTER);
+        data.writeInt(alphabet.size());
+        for (Map.Entry<Character, Integer> e : alphabet.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) {
+                throw new IllegalArgumentException();
+            }
+            data.writeChar(e.getKey());
+            data.writeInt(e.getValue());
+        }
+        return new DataInputStream(new ByteArrayInputStream(call(request.toByteArray()))).readLong();
+    }
+
+    /**
+     * @param id a registered codebook
+     * @return the codebook's {@link Huffman#getHeader() header}, to rebuild it locally with
+     * {@link Huffman#fromHeader(byte[])}
+     * @throws IllegalArgumentException if the codebook is not registered
+     * @throws IOException              if the connection fails
+     */
+    public byte[] header(long id) throws IOException {
+        return call(withId(HuffmanServer.HEADER, id).toByteArray());
+    }
+
+    /**
+     * Compresses a string on the server.
+     *
+     * @param id    a registered codebook
+     * @param input the string to compress
+     * @return the compressed string in the block format of {@link HuffmanOutputStream}
+     * @throws IllegalArgumentException if the input is null, the codebook is not registered, the
+     *                                  input has characters outside its alphabet, or either the
+     *                                  request or the response would be longer than a frame
+     * @throws IOException              if the connection fails
+     */
+    public byte[] compress(long id, String input) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException();
+        }
+        ByteArrayOutputStream request = withId(HuffmanServer.COMPRESS, id);
+        new DataOutputStream(request).writeChars(input);
+        return call(request.toByteArray());
+    }
+
+    /**
+     * Decompresses blocks on the server.
+     *
+     * @param id         a registered codebook
+     * @param compressed blocks in the format of {@link HuffmanOutputStream}
+     * @return the decompressed string
+     * @throws IllegalArgumentException if the blocks are null, the codebook is not registered,
+     *                                  the blocks are truncated or not decodable, or either the
+     *                                  request or the response would be longer than a frame
+     * @throws IOException              if the connection fails
+     */
+    public String decompress(long id, byte[] compressed) throws IOException {
+        if (compressed == null) {
+            throw new IllegalArgumentException();
+        }
+        ByteArrayOutputStream request = withId(HuffmanServer.DECOMPRESS, id);
+        request.write(compressed);
+        byte[] response = call(request.toByteArray());
+        char[] chars = new char[response.length / 2];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ((response[2 * i] & 0xFF) << 8 | (response[2 * i + 1] & 0xFF));
+        }
+        return new String(chars);
+    }
+
+    private static ByteArrayOutputStream withId(byte op, long id) throws IOException {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(request);
+        data.writeByte(op);
+        data.writeLong(id);
+        return request;
+    }
+
+    /**
+     * Sends a request frame and waits for its response. If the exchange fails part way, for
+     * example on a response frame that is too long, the connection is closed, since the next
+     * frame read from it would start in the wrong place.
+     *
+     * @return the response body
+     * @throws IllegalArgumentException if the server answered with an error status
+     */
+    private byte[] call(byte[] request) throws IOException {
+        if (request.length > HuffmanServer.MAX_FRAME) {
+            throw new IllegalArgumentException();
+        }
+        byte[] response;
+        try {
+            HuffmanServer.writeFrame(out, request);
+            out.flush();
+            response = HuffmanServer.readFrame(in);
+            if (response == null || response.length == 0) {
+                throw new EOFException();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (response[0] != HuffmanServer.OK) {
+            throw new IllegalArgumentException();
+        }
+        return Arrays.copyOfRange(response, 1, response.length);
+    }
+
+    /**
+     * Closes the connection.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
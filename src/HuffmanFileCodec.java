@@ -0,0 +1,252 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Compresses and decompresses whole files, reading input through memory-mapped windows of
+ * {@link FileChannel#map} and writing output through a direct buffer, so file data never passes
+ * through Strings. Each byte of the file is treated as the character of the same value.
+ * <p>
+ * A compressed file starts with the {@link Huffman#getHeader() header} of a canonical codebook
+ * built from the file's own byte frequencies, followed by the block stream described in {@link
+ * HuffmanOutputStream}.
+ */
+public class HuffmanFileCodec {
+
+    /**
+     * The largest region of a file mapped at once.
+     */
+    static final int WINDOW_BYTES = 1 << 26;
+
+    private static final int OUTPUT_BYTES = 1 << 20;
+
+    private HuffmanFileCodec() {
+    }
+
+    /**
+     * Compresses a file.
+     *
+     * @param source the file to compress
+     * @param target the file to write, replaced if it exists
+     * @return the size of the compressed file in bytes
+     * @throws IllegalArgumentException if either path is null
+     * @throws IOException              if reading or writing fails
+     */
+    public static long compress(Path source, Path target) throws IOException {
+        if (source == null || target == null) {
+            throw new IllegalArgumentException();
+        }
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Huffman huffman = codebook(histogram(in)).toCanonical();
+            long[] codes = new long[256];
+            int[] lengths = new int[256];
+            for (char c = 0; c < 256; c++) {
+                lengths[c] = huffman.codeLength(c);
+                if (lengths[c] > 0) {
+                    codes[c] = huffman.code(c);
+                }
+            }
+
+            ByteBuffer buf = ByteBuffer.allocateDirect(OUTPUT_BYTES);
+            buf.put(huffman.getHeader());
+            int blockStart = startBlock(out, buf);
+            BitWriter bits = new BitWriter(buf);
+            for (long pos = 0; pos < in.size(); pos += WINDOW_BYTES) {
+                MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, pos,
+                        Math.min(WINDOW_BYTES, in.size() - pos));
+                while (window.hasRemaining()) {
+                    int b = window.get() & 0xFF;
+                    if (lengths[b] == 0) {
+                        throw new IOException("file changed while compressing");
+                    }
+                    if (bits.bitCount() + lengths[b] > 8L * HuffmanOutputStream.BLOCK_BYTES) {
+                        endBlock(buf, blockStart, bits);
+                        blockStart = startBlock(out, buf);
+                        bits = new BitWriter(buf);
+                    }
+                    bits.write(codes[b], lengths[b]);
+                }
+            }
+            if (bits.bitCount() > 0) {
+                endBlock(buf, blockStart, bits);
+                blockStart = startBlock(out, buf);
+            }
+            buf.putInt(blockStart, 0);
+            drain(out, buf);
+            return out.size();
+        }
+    }
+
+    /**
+     * Decompresses a file written by {@link #compress(Path, Path)}.
+     *
+     * @param source the file to decompress
+     * @param target the file to write, replaced if it exists
+     * @return the size of the decompressed file in bytes
+     * @throws IllegalArgumentException if either path is null
+     * @throws IOException              if reading or writing fails, or the source is not a valid
+     *                                  compressed file
+     */
+    public static long decompress(Path source, Path target) throws IOException {
+        if (source == null || target == null) {
+            throw new IllegalArgumentException();
+        }
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long pos = 0;
+            MappedByteBuffer window = map(in, pos);
+            Huffman huffman;
+            try {
+                huffman = Huffman.fromHeader(window);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("corrupt header", e);
+            }
+            DecodeTable decodeTable = huffman.getDecodeTable();
+
+            ByteBuffer buf = ByteBuffer.allocateDirect(OUTPUT_BYTES);
+            while (true) {
+                if (window.remaining() < 4 + HuffmanOutputStream.BLOCK_BYTES
+                        && pos + window.limit() < in.size()) {
+                    pos += window.position();
+                    window = map(in, pos);
+                }
+                if (window.remaining() < 4) {
+                    throw new IOException("truncated block header");
+                }
+                int bitCount = window.getInt();
+                if (bitCount == 0) {
+                    break;
+                }
+                int length = (bitCount + 7) / 8;
+                if (bitCount < 0 || bitCount > 8 * HuffmanOutputStream.BLOCK_BYTES
+                        || length > window.remaining()) {
+                    throw new IOException("corrupt block header");
+                }
+                ByteBuffer block = window.duplicate();
+                block.limit(block.position() + length);
+                window.position(window.position() + length);
+
+                BitReader bits = new BitReader(block, bitCount);
+                while (bits.remaining() > 0) {
+                    int entry = decodeTable.decode(bits.peek());
+                    int codeLength = entry & 0xFF;
+                    if (entry == 0 || codeLength > bits.remaining() || entry >>> 8 > 0xFF) {
+                        throw new IOException("undecodable block");
+                    }
+                    bits.skip(codeLength);
+                    if (!buf.hasRemaining()) {
+                        drain(out, buf);
+                    }
+                    buf.put((byte) (entry >>> 8));
+                }
+            }
+            drain(out, buf);
+            return out.size();
+        }
+    }
+
+    private static long[] histogram(FileChannel in) throws IOException {
+        long[] counts = new long[256];
+        for (long pos = 0; pos < in.size(); pos += WINDOW_BYTES) {
+            MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, pos,
+                    Math.min(WINDOW_BYTES, in.size() - pos));
+            while (window.hasRemaining()) {
+                counts[window.get() & 0xFF]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Builds a codebook for byte frequencies. Frequencies are scaled down to fit a {@code Huffman}
+     * frequency map when the file is too large, and placeholder bytes are added when fewer than
+     * two distinct bytes occur.
+     */
+    private static Huffman codebook(long[] counts) {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        int shift = 0;
+        while ((total >>> shift) > Integer.MAX_VALUE / 2) {
+            shift++;
+        }
+
+        Map<Character, Integer> freq = new HashMap<>();
+        for (char c = 0; c < 256; c++) {
+            if (counts[c] > 0) {
+                freq.put(c, (int) Math.max(1, counts[c] >>> shift));
+            }
+        }
+        for (char c = 0; freq.size() < 2; c++) {
+            if (!freq.containsKey(c)) {
+                freq.put(c, 1);
+            }
+        }
+        return new Huffman(freq);
+    }
+
+    private static MappedByteBuffer map(FileChannel in, long pos) throws IOException {
+        return in.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW_BYTES, in.size() - pos));
+    }
+
+    /**
+     * Makes room in the output buffer for a whole block and reserves its bit count.
+     *
+     * @return the position of the reserved bit count
+     */
+    private static int startBlock(FileChannel out, ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 4 + HuffmanOutputStream.BLOCK_BYTES) {
+            drain(out, buf);
+        }
+        int blockStart = buf.position();
+        buf.putInt(0);
+        return blockStart;
+    }
+
+    private static void endBlock(ByteBuffer buf, int blockStart, BitWriter bits) {
+        bits.flush();
+        buf.putInt(blockStart, (int) bits.bitCount());
+    }
+
+    private static void drain(FileChannel out, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * Compresses or decompresses a file and reports the throughput.
+     * <p>
+     * Usage: {@code HuffmanFileCodec compress|decompress <source> <target>}
+     *
+     * @param args the mode, source file and target file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[0].equals("compress") || args[0].equals("decompress"))) {
+            System.err.println("usage: HuffmanFileCodec compress|decompress <source> <target>");
+            System.exit(2);
+        }
+        Path source = Paths.get(args[1]);
+        Path target = Paths.get(args[2]);
+        long sourceSize = source.toFile().length();
+
+        long start = System.nanoTime();
+        long targetSize = args[0].equals("compress")
+                ? compress(source, target) : decompress(source, target);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%s %d bytes -> %d bytes in %.3f s (%.1f MB/s)%n", args[0], sourceSize,
+                targetSize, seconds, Math.max(sourceSize, targetSize) / seconds / 1e6);
+    }
+}
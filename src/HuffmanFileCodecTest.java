@@ -0,0 +1,90 @@
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class HuffmanFileCodecTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path source;
+    private Path compressed;
+    private Path restored;
+
+    @Before
+    public void setUpHuffmanFileCodecTest() throws IOException {
+        source = folder.newFile("source").toPath();
+        compressed = folder.newFile("compressed").toPath();
+        restored = folder.newFile("restored").toPath();
+    }
+
+    private byte[] roundTrip(byte[] data) throws IOException {
+        Files.write(source, data);
+        long size = HuffmanFileCodec.compress(source, compressed);
+        assertEquals(Files.size(compressed), size);
+        assertEquals(data.length, HuffmanFileCodec.decompress(compressed, restored));
+        return Files.readAllBytes(restored);
+    }
+
+    //compress() and decompress()
+    @Test
+    public void roundTripSkewed() throws IOException {
+        byte[] data = new byte[300000];
+        Random r = new Random(121);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (r.nextGaussian() * 12);
+        }
+
+        assertArrayEquals(data, roundTrip(data));
+        assertTrue(Files.size(compressed) < data.length * 3 / 4);
+    }
+
+    @Test
+    public void roundTripAllBytes() throws IOException {
+        byte[] data = new byte[1000];
+        new Random(5).nextBytes(data);
+        assertArrayEquals(data, roundTrip(data));
+    }
+
+    @Test
+    public void roundTripEmpty() throws IOException {
+        assertArrayEquals(new byte[0], roundTrip(new byte[0]));
+    }
+
+    @Test
+    public void roundTripOneByteValue() throws IOException {
+        byte[] data = new byte[100];
+        Arrays.fill(data, (byte) 'z');
+        assertArrayEquals(data, roundTrip(data));
+    }
+
+    @Test
+    public void compressedFileIsHeaderThenBlocks() throws IOException {
+        Files.write(source, "AAggggosAsb".getBytes("US-ASCII"));
+        HuffmanFileCodec.compress(source, compressed);
+        byte[] bytes = Files.readAllBytes(compressed);
+
+        // g=0 A=10 s=110 b=1110 o=1111
+        byte[] header = {4, 1, 1, 1, 2, 'g', 'A', 's', 'b', 13};
+        assertArrayEquals(header, Arrays.copyOf(bytes, header.length));
+        assertEquals(header.length + 4 + 3 + 4, bytes.length);
+    }
+
+    @Test(expected = IOException.class)
+    public void decompressCorrupt() throws IOException {
+        Files.write(compressed, new byte[]{2, 0, 4, 'a', 1, 1, 1});
+        HuffmanFileCodec.decompress(compressed, restored);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressNullPath() throws IOException {
+        HuffmanFileCodec.compress(null, compressed);
+    }
+}
@@ -0,0 +1,151 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream that decompresses a stream written by {@link HuffmanOutputStream} with the same
+ * {@link Huffman} codebook, one block at a time. Characters are read with {@link #readChar()} or
+ * through {@link #asReader()}; plain byte reads return each character as a byte, which only works
+ * for codebooks over characters 0 to 255.
+ */
+public class HuffmanInputStream extends InputStream {
+
+    private final InputStream in;
+    private final DecodeTable decodeTable;
+    private final byte[] block = new byte[HuffmanOutputStream.BLOCK_BYTES];
+    private BitReader bits = new BitReader(ByteBuffer.wrap(block), 0);
+    private boolean finished;
+
+    /**
+     * @param in      the stream of compressed blocks to read
+     * @param huffman the codebook the stream was compressed with
+     * @throws IllegalArgumentException if either argument is null
+     */
+    public HuffmanInputStream(InputStream in, Huffman huffman) {
+        if (in == null || huffman == null) {
+            throw new IllegalArgumentException();
+        }
+        this.in = in;
+        decodeTable = huffman.getDecodeTable();
+    }
+
+    /**
+     * Decompresses the next character.
+     *
+     * @return the next character, or -1 at the end of the compressed stream
+     * @throws IOException if reading fails, or the compressed stream is truncated or not
+     *                     decodable
+     */
+    public int readChar() throws IOException {
+        while (bits.remaining() == 0) {
+            if (finished || !readBlock()) {
+                return -1;
+            }
+        }
+        int entry = decodeTable.decode(bits.peek());
+        int length = entry & 0xFF;
+        if (entry == 0 || length > bits.remaining()) {
+            throw new IOException("undecodable block");
+        }
+        bits.skip(length);
+        return entry >>> 8;
+    }
+
+    /**
+     * Decompresses the next character as a byte.
+     *
+     * @return the next character, or -1 at the end of the compressed stream
+     * @throws IOException if reading fails, the compressed stream is truncated or not decodable,
+     *                     or the character is above 255
+     */
+    @Override
+    public int read() throws IOException {
+        int c = readChar();
+        if (c > 0xFF) {
+            throw new IOException("character does not fit in a byte");
+        }
+        return c;
+    }
+
+    /**
+     * Decompresses characters into an array.
+     *
+     * @param cbuf the array to fill
+     * @param off  the index of the first character to fill
+     * @param len  the largest number of characters to read
+     * @return the number of characters read, or -1 at the end of the compressed stream
+     * @throws IOException if reading fails, or the compressed stream is truncated or not
+     *                     decodable
+     */
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > cbuf.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int n = 0;
+        while (n < len) {
+            int c = readChar();
+            if (c == -1) {
+                break;
+            }
+            cbuf[off + n++] = (char) c;
+        }
+        return n == 0 ? -1 : n;
+    }
+
+    /**
+     * @return a reader over the decompressed characters, which closes this stream when closed
+     */
+    public Reader asReader() {
+        return new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return HuffmanInputStream.this.read(cbuf, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                HuffmanInputStream.this.close();
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean readBlock() throws IOException {
+        int bitCount = readInt();
+        if (bitCount == 0) {
+            finished = true;
+            return false;
+        }
+        if (bitCount < 0 || bitCount > 8 * HuffmanOutputStream.BLOCK_BYTES) {
+            throw new IOException("corrupt block header");
+        }
+        int length = (bitCount + 7) / 8;
+        for (int n = 0; n < length; ) {
+            int read = in.read(block, n, length - n);
+            if (read == -1) {
+                throw new EOFException();
+            }
+            n += read;
+        }
+        bits = new BitReader(ByteBuffer.wrap(block, 0, length), bitCount);
+        return true;
+    }
+
+    private int readInt() throws IOException {
+        int v = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            v = (v << 8) | b;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Receives measurements from {@link Huffman} and {@link BinaryMinHeapImpl}: codebook builds with
+ * their code-length distribution, compress and decompress calls with their sizes and latencies,
+ * and heap operations. Every method does nothing by default, so an implementation overrides only
+ * what it records.
+ * <p>
+ * Like a heap, each {@link Huffman} reports to the instance it was constructed with, {@link
+ * #NOOP} unless given another; with {@code NOOP} no clocks are read, leaving only an empty call on
+ * each operation. Implementations are called from every thread that uses a codebook, so they must
+ * be thread-safe. {@link HuffmanMetricsRecorder} is one that
+ * keeps counters and latency histograms.
+ */
+public interface HuffmanMetrics {
+
+    /**
+     * Records nothing.
+     */
+    HuffmanMetrics NOOP = new HuffmanMetrics() {
+    };
+
+    /**
+     * Operations of a {@link BinaryMinHeap}.
+     */
+    enum HeapOperation {
+        ADD, EXTRACT_MIN, DECREASE_KEY
+    }
+
+    /**
+     * Called when a codebook has been built, whether from a tree, by package-merge or from a
+     * header.
+     *
+     * @param codeLengthCounts the number of characters with each code length, indexed by length;
+     *                         the caller keeps no reference to it
+     * @param nanos            the time taken to build the codes and decode table
+     */
+    default void codebookBuilt(int[] codeLengthCounts, long nanos) {
+    }
+
+    /**
+     * Called when a compress call returns.
+     *
+     * @param chars the number of characters compressed
+     * @param bits  the number of bits they were compressed to, not counting padding or framing
+     * @param nanos the time taken
+     */
+    default void compressed(long chars, long bits, long nanos) {
+    }
+
+    /**
+     * Called when a decompress call returns.
+     *
+     * @param bits  the number of bits decompressed
+     * @param chars the number of characters they were decompressed to
+     * @param nanos the time taken
+     */
+    default void decompressed(long bits, long chars, long nanos) {
+    }
+
+    /**
+     * Called for each operation on a heap built with these metrics.
+     *
+     * @param operation the operation
+     */
+    default void heapOperation(HeapOperation operation) {
+    }
+}
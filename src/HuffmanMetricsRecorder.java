@@ -0,0 +1,160 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics that keep totals in {@link LongAdder} counters and latencies in histograms with
+ * power-of-two buckets: bucket {@code i} counts durations of at least {@code 2^i} and less than
+ * {@code 2^(i+1)} nanoseconds, with bucket 0 also counting zero.
+ */
+public class HuffmanMetricsRecorder implements HuffmanMetrics {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder compressCalls = new LongAdder();
+    private final LongAdder compressedChars = new LongAdder();
+    private final LongAdder compressedBits = new LongAdder();
+    private final LongAdder decompressCalls = new LongAdder();
+    private final LongAdder decompressedBits = new LongAdder();
+    private final LongAdder decompressedChars = new LongAdder();
+    private final LongAdder codebooks = new LongAdder();
+    private final LongAdder[] compressLatency = adders(BUCKETS);
+    private final LongAdder[] decompressLatency = adders(BUCKETS);
+    private final LongAdder[] buildLatency = adders(BUCKETS);
+    private final LongAdder[] codeLengths = adders(BitReader.WINDOW_BITS + 1);
+    private final LongAdder[] heapOperations = adders(HeapOperation.values().length);
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+
+    private static void recordLatency(LongAdder[] histogram, long nanos) {
+        histogram[63 - Long.numberOfLeadingZeros(Math.max(1, nanos))].increment();
+    }
+
+    @Override
+    public void codebookBuilt(int[] codeLengthCounts, long nanos) {
+        codebooks.increment();
+        for (int len = 0; len < codeLengthCounts.length; len++) {
+            codeLengths[len].add(codeLengthCounts[len]);
+        }
+        recordLatency(buildLatency, nanos);
+    }
+
+    @Override
+    public void compressed(long chars, long bits, long nanos) {
+        compressCalls.increment();
+        compressedChars.add(chars);
+        compressedBits.add(bits);
+        recordLatency(compressLatency, nanos);
+    }
+
+    @Override
+    public void decompressed(long bits, long chars, long nanos) {
+        decompressCalls.increment();
+        decompressedBits.add(bits);
+        decompressedChars.add(chars);
+        recordLatency(decompressLatency, nanos);
+    }
+
+    @Override
+    public void heapOperation(HeapOperation operation) {
+        heapOperations[operation.ordinal()].increment();
+    }
+
+    /**
+     * @return the number of compress calls
+     */
+    public long compressCalls() {
+        return compressCalls.sum();
+    }
+
+    /**
+     * @return the number of characters compressed
+     */
+    public long compressedChars() {
+        return compressedChars.sum();
+    }
+
+    /**
+     * @return the number of bits characters were compressed to
+     */
+    public long compressedBits() {
+        return compressedBits.sum();
+    }
+
+    /**
+     * @return the number of decompress calls
+     */
+    public long decompressCalls() {
+        return decompressCalls.sum();
+    }
+
+    /**
+     * @return the number of bits decompressed
+     */
+    public long decompressedBits() {
+        return decompressedBits.sum();
+    }
+
+    /**
+     * @return the number of characters decompressed
+     */
+    public long decompressedChars() {
+        return decompressedChars.sum();
+    }
+
+    /**
+     * @return the number of codebooks built
+     */
+    public long codebooksBuilt() {
+        return codebooks.sum();
+    }
+
+    /**
+     * @return the number of characters given each code length across all codebooks built,
+     * indexed by length
+     */
+    public long[] codeLengthCounts() {
+        return sums(codeLengths);
+    }
+
+    /**
+     * @param operation a heap operation
+     * @return the number of times it was performed
+     */
+    public long heapOperations(HeapOperation operation) {
+        return heapOperations[operation.ordinal()].sum();
+    }
+
+    /**
+     * @return the latency histogram of compress calls
+     */
+    public long[] compressLatency() {
+        return sums(compressLatency);
+    }
+
+    /**
+     * @return the latency histogram of decompress calls
+     */
+    public long[] decompressLatency() {
+        return sums(decompressLatency);
+    }
+
+    /**
+     * @return the latency histogram of codebook builds
+     */
+    public long[] buildLatency() {
+        return sums(buildLatency);
+    }
+}
@@ -0,0 +1,140 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class HuffmanMetricsTest {
+    private HuffmanMetricsRecorder recorder;
+    private String seed;
+
+    @Before
+    public void setUpHuffmanMetricsTest() {
+        seed = "AAggggosAsb";
+        recorder = new HuffmanMetricsRecorder();
+    }
+
+    private static long sum(long[] counts) {
+        long sum = 0;
+        for (long c : counts) {
+            sum += c;
+        }
+        return sum;
+    }
+
+    //codebookBuilt()
+    @Test
+    public void codebookBuiltFromSeed() {
+        new Huffman(seed, recorder);
+        assertEquals(1, recorder.codebooksBuilt());
+        long[] lengths = recorder.codeLengthCounts();
+        assertEquals(1, lengths[1]);
+        assertEquals(1, lengths[2]);
+        assertEquals(1, lengths[3]);
+        assertEquals(2, lengths[4]);
+        assertEquals(5, sum(lengths));
+        assertEquals(1, sum(recorder.buildLatency()));
+    }
+
+    @Test
+    public void codebookBuiltHeapOperations() {
+        new Huffman(seed, recorder);
+        assertEquals(5 + 4, recorder.heapOperations(HuffmanMetrics.HeapOperation.ADD));
+        assertEquals(2 * 4, recorder.heapOperations(HuffmanMetrics.HeapOperation.EXTRACT_MIN));
+        assertEquals(0, recorder.heapOperations(HuffmanMetrics.HeapOperation.DECREASE_KEY));
+    }
+
+    @Test
+    public void codebookBuiltIntHeapOperations() {
+        Map<Character, Integer> freq = new HashMap<>();
+        for (char c : seed.toCharArray()) {
+            freq.merge(c, 1, Integer::sum);
+        }
+        new Huffman(freq, Huffman.Construction.INT_HEAP, recorder);
+        assertEquals(5 + 4, recorder.heapOperations(HuffmanMetrics.HeapOperation.ADD));
+        assertEquals(2 * 4, recorder.heapOperations(HuffmanMetrics.HeapOperation.EXTRACT_MIN));
+    }
+
+    @Test
+    public void codebookBuiltCanonical() {
+        Huffman.fromHeader(new Huffman(seed, recorder).toCanonical().getHeader(), recorder);
+        assertEquals(3, recorder.codebooksBuilt());
+        assertEquals(15, sum(recorder.codeLengthCounts()));
+    }
+
+    //compressed()
+    @Test
+    public void compressed() {
+        Huffman hf = new Huffman(seed, recorder);
+        hf.compress(seed);
+        hf.compressToBytes("AAg");
+        assertEquals(2, recorder.compressCalls());
+        assertEquals(14, recorder.compressedChars());
+        assertEquals(24 + 5, recorder.compressedBits());
+        assertEquals(2, sum(recorder.compressLatency()));
+    }
+
+    @Test
+    public void compressedParallelOnce() {
+        new Huffman(seed, recorder).compressParallel(seed);
+        assertEquals(1, recorder.compressCalls());
+        assertEquals(24, recorder.compressedBits());
+    }
+
+    @Test
+    public void compressedNotOnFailure() {
+        try {
+            new Huffman(seed, recorder).compress("z");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(0, recorder.compressCalls());
+        }
+    }
+
+    //decompressed()
+    @Test
+    public void decompressed() {
+        Huffman hf = new Huffman(seed, recorder);
+        hf.decompress("101000001111110101101110");
+        assertEquals(1, recorder.decompressCalls());
+        assertEquals(24, recorder.decompressedBits());
+        assertEquals(11, recorder.decompressedChars());
+        assertEquals(1, sum(recorder.decompressLatency()));
+    }
+
+    //heapOperation()
+    @Test
+    public void heapOperationDecreaseKey() {
+        BinaryMinHeapImpl<Integer, String> heap = new BinaryMinHeapImpl<>(recorder);
+        heap.add(5, "a");
+        heap.add(3, "b");
+        heap.decreaseKey("a", 1);
+        heap.extractMin();
+        assertEquals(2, recorder.heapOperations(HuffmanMetrics.HeapOperation.ADD));
+        assertEquals(1, recorder.heapOperations(HuffmanMetrics.HeapOperation.DECREASE_KEY));
+        assertEquals(1, recorder.heapOperations(HuffmanMetrics.HeapOperation.EXTRACT_MIN));
+    }
+
+    //getMetrics()
+    @Test
+    public void getMetricsNoopByDefault() {
+        Huffman hf = new Huffman(seed);
+        hf.compress(seed);
+        assertSame(HuffmanMetrics.NOOP, hf.getMetrics());
+        assertSame(HuffmanMetrics.NOOP, Huffman.fromHeader(hf.toCanonical().getHeader())
+                .getMetrics());
+        assertEquals(0, recorder.codebooksBuilt());
+    }
+
+    @Test
+    public void getMetricsKeptByCanonical() {
+        Huffman hf = new Huffman(seed, recorder);
+        assertSame(recorder, hf.toCanonical().getMetrics());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getMetricsNull() {
+        new Huffman(seed, (HuffmanMetrics) null);
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * An output stream that compresses everything written to it with an existing {@link Huffman}
+ * codebook, holding at most one block of compressed output in memory. Characters are written
+ * with {@link #writeChar(int)}, {@link #write(CharSequence)} or {@link #transferFrom(Reader)};
+ * plain byte writes compress each byte as the character of the same value, so byte data needs a
+ * codebook over characters 0 to 255.
+ * <p>
+ * The compressed stream is a sequence of blocks, each a 4-byte big-endian count of bits followed
+ * by those bits packed most significant bit first, with the last byte padded with zeroes. A count
+ * of zero ends the stream. No code spans two blocks, so every block decodes on its own.
+ */
+public class HuffmanOutputStream extends OutputStream {
+
+    /**
+     * The largest number of packed bytes in one block.
+     */
+    static final int BLOCK_BYTES = 1 << 16;
+
+    private final OutputStream out;
+    private final Huffman huffman;
+    private final ByteBuffer block = ByteBuffer.allocate(BLOCK_BYTES);
+    private BitWriter bits = new BitWriter(block);
+    private long totalBits;
+    private boolean finished;
+
+    /**
+     * @param out     the stream to write compressed blocks to
+     * @param huffman the codebook to compress with
+     * @throws IllegalArgumentException if either argument is null
+     */
+    public HuffmanOutputStream(OutputStream out, Huffman huffman) {
+        if (out == null || huffman == null) {
+            throw new IllegalArgumentException();
+        }
+        this.out = out;
+        this.huffman = huffman;
+    }
+
+    /**
+     * Compresses a single character.
+     *
+     * @param c the character to compress, in the low 16 bits
+     * @throws IllegalArgumentException if the character is not compressible
+     * @throws IOException              if writing a completed block fails, or the stream is
+     *                                  finished
+     */
+    public void writeChar(int c) throws IOException {
+        if (finished) {
+            throw new IOException("stream finished");
+        }
+        int length = huffman.codeLength((char) c);
+        if (length == 0) {
+            throw new IllegalArgumentException();
+        }
+        if (bits.bitCount() + length > 8L * BLOCK_BYTES) {
+            writeBlock();
+        }
+        bits.write(huffman.code((char) c), length);
+        totalBits += length;
+    }
+
+    /**
+     * @return the number of bits of compressed characters written so far, not counting block
+     * headers or padding
+     */
+    long bitCount() {
+        return totalBits;
+    }
+
+    /**
+     * Compresses the byte {@code b & 0xFF} as the character of the same value.
+     *
+     * @throws IllegalArgumentException if the character is not compressible
+     */
+    @Override
+    public void write(int b) throws IOException {
+        writeChar(b & 0xFF);
+    }
+
+    /**
+     * Compresses every character of the given sequence.
+     *
+     * @param s the characters to compress
+     * @throws IllegalArgumentException if s is null or contains characters that are not
+     *                                  compressible
+     * @throws IOException              if writing a completed block fails
+     */
+    public void write(CharSequence s) throws IOException {
+        if (s == null) {
+            throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < s.length(); i++) {
+            writeChar(s.charAt(i));
+        }
+    }
+
+    /**
+     * Compresses everything remaining in a reader, without closing it.
+     *
+     * @param in the reader to compress
+     * @return the number of characters compressed
+     * @throws IllegalArgumentException if in is null or supplies characters that are not
+     *                                  compressible
+     * @throws IOException              if reading or writing fails
+     */
+    public long transferFrom(Reader in) throws IOException {
+        if (in == null) {
+            throw new IllegalArgumentException();
+        }
+        char[] buf = new char[8192];
+        long count = 0;
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            for (int i = 0; i < n; i++) {
+                writeChar(buf[i]);
+            }
+            count += n;
+        }
+        return count;
+    }
+
+    /**
+     * Compresses everything remaining in an input stream, each byte as the character of the same
+     * value, without closing it.
+     *
+     * @param in the stream to compress
+     * @return the number of bytes compressed
+     * @throws IllegalArgumentException if in is null or supplies bytes that are not compressible
+     * @throws IOException              if reading or writing fails
+     */
+    public long transferFrom(InputStream in) throws IOException {
+        if (in == null) {
+            throw new IllegalArgumentException();
+        }
+        byte[] buf = new byte[8192];
+        long count = 0;
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            for (int i = 0; i < n; i++) {
+                writeChar(buf[i] & 0xFF);
+            }
+            count += n;
+        }
+        return count;
+    }
+
+    /**
+     * Writes out the current block, if it is not empty, and flushes the underlying stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!finished && bits.bitCount() > 0) {
+            writeBlock();
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes out the current block and the end-of-stream marker without closing the underlying
+     * stream. Nothing more can be written afterwards.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (bits.bitCount() > 0) {
+            writeBlock();
+        }
+        writeInt(0);
+        finished = true;
+    }
+
+    /**
+     * Finishes the compressed stream and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        long bitCount = bits.bitCount();
+        bits.flush();
+        writeInt((int) bitCount);
+        out.write(block.array(), 0, block.position());
+        block.clear();
+        bits = new BitWriter(block);
+    }
+
+    private void writeInt(int v) throws IOException {
+        out.write(v >>> 24);
+        out.write(v >>> 16);
+        out.write(v >>> 8);
+        out.write(v);
+    }
+}
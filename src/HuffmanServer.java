@@ -0,0 +1,386 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A compression service that shares codebooks between all the processes that connect to it, over
+ * TCP or a Unix domain socket. Every connection is served on its own virtual thread, so thousands
+ * of mostly idle clients cost little more than their buffers.
+ * <p>
+ * Clients and server exchange frames: a 4-byte big-endian length followed by that many bytes.
+ * A request frame starts with an operation byte and a response frame with a status byte, {@link
+ * #OK}, {@link #BAD_REQUEST} or {@link #UNKNOWN_CODEBOOK}; any response body follows only on
+ * {@code OK}. Multi-byte values are big-endian and characters are sent as 2 bytes each.
+ * <ul>
+ * <li>{@link #REGISTER}: an int count, then that many (char, int frequency) pairs. Returns a long
+ * codebook id; registering equal frequencies again returns the same id. Codebooks are kept for
+ * the life of the server, so once it holds as many as it was created to hold, registering new
+ * frequencies is a bad request.</li>
+ * <li>{@link #HEADER}: a long codebook id. Returns the codebook's {@link Huffman#getHeader()
+ * header}, so that clients can also code locally.</li>
+ * <li>{@link #COMPRESS}: a long codebook id, then the characters to compress, filling the rest of
+ * the frame. Returns the compressed characters in the block format of {@link
+ * HuffmanOutputStream}.</li>
+ * <li>{@link #DECOMPRESS}: a long codebook id, then the compressed blocks, filling the rest of the
+ * frame. Returns the decompressed characters.</li>
+ * </ul>
+ * A request that cannot be served, including one whose response would be longer than {@link
+ * #MAX_FRAME} bytes, is answered with an error status and the connection stays open; a request
+ * frame longer than that closes it. {@link HuffmanClient} speaks
+ * this protocol.
+ */
+public class HuffmanServer implements Closeable {
+
+    static final byte REGISTER = 1;
+    static final byte HEADER = 2;
+    static final byte COMPRESS = 3;
+    static final byte DECOMPRESS = 4;
+
+    static final byte OK = 0;
+    static final byte BAD_REQUEST = 1;
+    static final byte UNKNOWN_CODEBOOK = 2;
+
+    /**
+     * The longest frame accepted, in bytes.
+     */
+    static final int MAX_FRAME = 1 << 26;
+
+    /**
+     * The number of codebooks a server holds unless created with another limit.
+     */
+    public static final int DEFAULT_MAX_CODEBOOKS = 1 << 12;
+
+    private final ServerSocketChannel server;
+    private final SocketAddress address;
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final Map<Map<Character, Integer>, Long> ids = new ConcurrentHashMap<>();
+    private final Map<Long, Huffman> codebooks = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final int maxCodebooks;
+    private boolean closed;
+
+    /**
+     * Binds a server that holds up to {@link #DEFAULT_MAX_CODEBOOKS} codebooks and starts
+     * accepting connections.
+     *
+     * @param address an {@link InetSocketAddress} to serve over TCP, with port 0 for any free
+     *                port, or a {@link UnixDomainSocketAddress} to serve over a Unix domain socket
+     *                whose file must not exist yet
+     * @throws IllegalArgumentException if the address is null or of another kind
+     * @throws IOException              if the address cannot be bound
+     */
+    public HuffmanServer(SocketAddress address) throws IOException {
+        this(address, DEFAULT_MAX_CODEBOOKS);
+    }
+
+    /**
+     * Binds a server and starts accepting connections.
+     *
+     * @param address      an {@link InetSocketAddress} to serve over TCP, with port 0 for any
+     *                     free port, or a {@link UnixDomainSocketAddress} to serve over a Unix
+     *                     domain socket whose file must not exist yet
+     * @param maxCodebooks the most codebooks to register
+     * @throws IllegalArgumentException if the address is null or of another kind, or
+     *                                  maxCodebooks is negative
+     * @throws IOException              if the address cannot be bound
+     */
+    public HuffmanServer(SocketAddress address, int maxCodebooks) throws IOException {
+        if (maxCodebooks < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxCodebooks = maxCodebooks;
+        if (address instanceof InetSocketAddress) {
+            server = ServerSocketChannel.open();
+        } else if (address instanceof UnixDomainSocketAddress) {
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            throw new IllegalArgumentException();
+        }
+        server.bind(address);
+        this.address = server.getLocalAddress();
+        threads.execute(this::accept);
+    }
+
+    /**
+     * @return the address the server is bound to, with the actual port if port 0 was asked for
+     */
+    public SocketAddress getLocalAddress() {
+        return address;
+    }
+
+    /**
+     * @return the number of distinct codebooks registered so far
+     */
+    public int codebookCount() {
+        return codebooks.size();
+    }
+
+    private void accept() {
+        while (server.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (IOException e) {
+                // closed by close(), or the listening socket failed
+                return;
+            }
+            synchronized (this) {
+                if (closed) {
+                    // accepted just as close() ran; it has already closed the others
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        // dropping it anyway
+                    }
+                    return;
+                }
+                connections.add(channel);
+                threads.execute(() -> serve(channel));
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel)));
+            byte[] frame;
+            while ((frame = readFrame(in)) != null) {
+                ByteArrayOutputStream response = new ByteArrayOutputStream();
+                response.write(OK);
+                byte status = handle(frame, new DataOutputStream(new FrameLimit(response)));
+                if (status != OK) {
+                    response.reset();
+                    response.write(status);
+                }
+                writeFrame(out, response.toByteArray());
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the client went away or broke the framing; nothing more to tell it
+        } finally {
+            connections.remove(channel);
+        }
+    }
+
+    /**
+     * Reads one frame.
+     *
+     * @return the frame, or null at the end of the stream
+     * @throws IOException if reading fails, or the frame is truncated or too long
+     */
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first == -1) {
+            return null;
+        }
+        int length = (first << 24) | (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+        if (length < 0 || length > MAX_FRAME) {
+            throw new IOException("frame too long");
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return frame;
+    }
+
+    static void writeFrame(DataOutputStream out, byte[] frame) throws IOException {
+        out.writeInt(frame.length);
+        out.write(frame);
+    }
+
+    /**
+     * Serves one request, writing the response body after the {@code OK} already written. A
+     * response that would not fit in a frame is abandoned as a bad request.
+     *
+     * @return the status of the response
+     */
+    private byte handle(byte[] frame, DataOutputStream response) {
+        DataInputStream request = new DataInputStream(new ByteArrayInputStream(frame));
+        try {
+            byte op = request.readByte();
+            if (op == REGISTER) {
+                int count = request.readInt();
+                if (count < 0 || count > frame.length / 6) {
+                    return BAD_REQUEST;
+                }
+                Map<Character, Integer> freq = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    freq.put(request.readChar(), request.readInt());
+                }
+                Long id = register(freq);
+                if (id == null) {
+                    return BAD_REQUEST;
+                }
+                response.writeLong(id);
+                return OK;
+            }
+            if (op != HEADER && op != COMPRESS && op != DECOMPRESS) {
+                return BAD_REQUEST;
+            }
+            Huffman huffman = codebooks.get(request.readLong());
+            if (huffman == null) {
+                return UNKNOWN_CODEBOOK;
+            }
+            if (op == HEADER) {
+                response.write(huffman.getHeader());
+            } else if (op == COMPRESS) {
+                if (request.available() % 2 != 0) {
+                    return BAD_REQUEST;
+                }
+                HuffmanOutputStream out = new HuffmanOutputStream(response, huffman);
+                while (request.available() > 0) {
+                    out.writeChar(request.readChar());
+                }
+                out.finish();
+            } else {
+                HuffmanInputStream in = new HuffmanInputStream(request, huffman);
+                int c;
+                while ((c = in.readChar()) != -1) {
+                    response.writeChar(c);
+                }
+            }
+            return OK;
+        } catch (IllegalArgumentException | IOException e) {
+            // the request is read from memory and the response written to memory, so this is
+            // a malformed request, undecodable input or a response too long for a frame rather
+            // than a broken connection
+            return BAD_REQUEST;
+        }
+    }
+
+    /**
+     * Passes bytes through to a response buffer that already holds the status byte, and fails
+     * before the response grows past {@link #MAX_FRAME}.
+     */
+    private static final class FrameLimit extends FilterOutputStream {
+        private final ByteArrayOutputStream response;
+
+        FrameLimit(ByteArrayOutputStream response) {
+            super(response);
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (response.size() >= MAX_FRAME) {
+                throw new IOException("frame too long");
+            }
+            response.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > MAX_FRAME - response.size()) {
+                throw new IOException("frame too long");
+            }
+            response.write(b, off, len);
+        }
+    }
+
+    /**
+     * @return the id of the codebook for the frequencies, or null if they are new and the server
+     * already holds, or is building, as many codebooks as it may
+     */
+    private Long register(Map<Character, Integer> freq) {
+        Long id = ids.get(freq);
+        if (id != null) {
+            return id;
+        }
+        // reserve a slot before building, so that the cap is never passed
+        int count;
+        do {
+            count = reserved.get();
+            if (count >= maxCodebooks) {
+                return null;
+            }
+        } while (!reserved.compareAndSet(count, count + 1));
+        // built outside the maps, so that no map lock is held for a whole tree build
+        Huffman huffman;
+        try {
+            huffman = new Huffman(freq).toCanonical();
+        } catch (IllegalArgumentException e) {
+            reserved.decrementAndGet();
+            throw e;
+        }
+        long newId = nextId.incrementAndGet();
+        codebooks.put(newId, huffman);
+        id = ids.putIfAbsent(freq, newId);
+        if (id != null) {
+            // another client registered the same frequencies meanwhile; keep theirs
+            codebooks.remove(newId);
+            reserved.decrementAndGet();
+            return id;
+        }
+        return newId;
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones and, for a Unix domain socket, deletes
+     * its file.
+     *
+     * @throws IOException if closing the listening socket fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        try {
+            server.close();
+            for (SocketChannel channel : connections) {
+                channel.close();
+            }
+            threads.shutdown();
+        } finally {
+            if (address instanceof UnixDomainSocketAddress) {
+                Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            }
+        }
+    }
+
+    /**
+     * Runs a server until the process is stopped.
+     * <p>
+     * Usage: {@code HuffmanServer tcp <port>} to listen on localhost, or {@code HuffmanServer unix
+     * <path>}
+     *
+     * @param args the transport and where to listen
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        SocketAddress address = null;
+        if (args.length == 2 && args[0].equals("tcp")) {
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[1]));
+        } else if (args.length == 2 && args[0].equals("unix")) {
+            address = UnixDomainSocketAddress.of(Path.of(args[1]));
+        } else {
+            System.err.println("usage: HuffmanServer tcp <port> | unix <path>");
+            System.exit(2);
+        }
+        HuffmanServer server = new HuffmanServer(address);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // exiting anyway
+            }
+        }));
+        System.out.println("listening on " + server.getLocalAddress());
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,287 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class HuffmanServerTest {
+    private HuffmanServer server;
+    private Map<Character, Integer> freq;
+    private String seed;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUpHuffmanServerTest() throws IOException {
+        seed = "AAggggosAsb";
+        freq = new HashMap<>();
+        for (char c : seed.toCharArray()) {
+            freq.merge(c, 1, Integer::sum);
+        }
+        server = new HuffmanServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @After
+    public void tearDownHuffmanServerTest() throws IOException {
+        server.close();
+    }
+
+    //register()
+    @Test
+    public void registerSharedAcrossClients() throws IOException {
+        try (HuffmanClient a = HuffmanClient.connect(server.getLocalAddress());
+             HuffmanClient b = HuffmanClient.connect(server.getLocalAddress())) {
+            long id = a.register(freq);
+            assertEquals(id, b.register(new TreeMap<>(freq)));
+            assertEquals(1, server.codebookCount());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void registerOneCharacter() throws IOException {
+        try (HuffmanClient client = HuffmanClient.connect(server.getLocalAddress())) {
+            client.register(Collections.singletonMap('a', 1));
+        }
+    }
+
+    @Test
+    public void registerBeyondLimit() throws IOException {
+        try (HuffmanServer small = new HuffmanServer(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+             HuffmanClient client = HuffmanClient.connect(small.getLocalAddress())) {
+            long id = client.register(freq);
+            Map<Character, Integer> other = new HashMap<>(freq);
+            other.put('z', 1);
+            try {
+                client.register(other);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals(id, client.register(freq));
+                assertEquals(1, small.codebookCount());
+            }
+        }
+    }
+
+    @Test
+    public void registerConcurrentStaysWithinLimit() throws Exception {
+        try (HuffmanServer small = new HuffmanServer(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 5)) {
+            ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                Map<Character, Integer> alphabet = new HashMap<>(freq);
+                alphabet.put('z', 1 + i % 20);
+                results.add(pool.submit(() -> {
+                    try (HuffmanClient client = HuffmanClient.connect(small.getLocalAddress())) {
+                        return client.register(alphabet);
+                    } catch (IllegalArgumentException e) {
+                        return null;
+                    }
+                }));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Future<Long> result : results) {
+                Long id = result.get(30, TimeUnit.SECONDS);
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+            pool.shutdown();
+            assertTrue(ids.size() <= 5);
+            assertEquals(ids.size(), small.codebookCount());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void registerNegativeLimit() throws IOException {
+        new HuffmanServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), -1);
+    }
+
+    //header()
+    @Test
+    public void headerRebuildsCodebook() throws IOException {
+        try (HuffmanClient client = HuffmanClient.connect(server.getLocalAddress())) {
+            long id = client.register(freq);
+            Huffman local = Huffman.fromHeader(client.header(id));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (HuffmanOutputStream out = new HuffmanOutputStream(bytes, local)) {
+                out.write(seed);
+            }
+            assertArrayEquals(bytes.toByteArray(), client.compress(id, seed));
+        }
+    }
+
+    //compress()
+    @Test
+    public void compressRoundTrip() throws IOException {
+        try (HuffmanClient client = HuffmanClient.connect(server.getLocalAddress())) {
+            long id = client.register(freq);
+            byte[] compressed = client.compress(id, seed);
+            assertEquals(seed, client.decompress(id, compressed));
+        }
+    }
+
+    @Test
+    public void compressEmpty() throws IOException {
+        try (HuffmanClient client = HuffmanClient.connect(server.getLocalAddress())) {
+            long id = client.register(freq);
+            assertEquals("", client.decompress(id, client.compress(id, "")));
+        }
+    }
+
+    @Test
+    public void compressUnknownCharacterKeepsConnection() throws IOException {
+        try (HuffmanClient client = HuffmanClient.connect(server.getLocalAddress())) {
+            long id = client.register(freq);
+            try {
+                client.compress(id, "z");
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals(seed, client.decompress(id, client.compress(id, seed)));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressUnknownCodebook() throws IOException {
+        try (HuffmanClient client = HuffmanClient.connect(server.getLocalAddress())) {
+            client.compress(42, seed);
+        }
+    }
+
+    //decompress()
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressTruncated() throws IOException {
+        try (HuffmanClient client = HuffmanClient.connect(server.getLocalAddress())) {
+            long id = client.register(freq);
+            byte[] compressed = client.compress(id, seed);
+            client.decompress(id, Arrays.copyOf(compressed, 6));
+        }
+    }
+
+    @Test
+    public void decompressLongerThanFrameKeepsConnection() throws IOException {
+        Map<Character, Integer> skewed = new HashMap<>();
+        skewed.put('a', 1 << 20);
+        skewed.put('b', 1);
+        try (HuffmanClient client = HuffmanClient.connect(server.getLocalAddress())) {
+            long id = client.register(skewed);
+            byte[] header = client.header(id);
+            Huffman local = Huffman.fromHeader(header);
+            // one bit a character, so a few megabytes that decode to more than a frame
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (HuffmanOutputStream out = new HuffmanOutputStream(bytes, local)) {
+                for (int i = 0; i < HuffmanServer.MAX_FRAME / 2; i++) {
+                    out.writeChar('a');
+                }
+            }
+            try {
+                client.decompress(id, bytes.toByteArray());
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertArrayEquals(header, client.header(id));
+            }
+        }
+    }
+
+    @Test
+    public void decompressTooLongFrameClosesClient() throws Exception {
+        try (ServerSocketChannel fake = ServerSocketChannel.open()) {
+            fake.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            Thread.ofVirtual().start(() -> {
+                try (SocketChannel channel = fake.accept()) {
+                    DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+                    DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+                    HuffmanServer.readFrame(in);
+                    out.writeInt(HuffmanServer.MAX_FRAME + 1);
+                    out.write(HuffmanServer.OK);
+                    in.read();
+                } catch (IOException e) {
+                    // the client hung up
+                }
+            });
+            try (HuffmanClient client = HuffmanClient.connect(fake.getLocalAddress())) {
+                try {
+                    client.decompress(1, new byte[4]);
+                    fail();
+                } catch (IOException e) {
+                    assertEquals("frame too long", e.getMessage());
+                }
+                try {
+                    client.header(1);
+                    fail();
+                } catch (ClosedChannelException e) {
+                    // not read out of step with the stream
+                }
+            }
+        }
+    }
+
+    //connect()
+    @Test
+    public void connectManyConcurrentClients() throws Exception {
+        long id;
+        try (HuffmanClient client = HuffmanClient.connect(server.getLocalAddress())) {
+            id = client.register(freq);
+        }
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String input = seed.substring(i % seed.length()) + seed;
+            results.add(pool.submit(() -> {
+                try (HuffmanClient client = HuffmanClient.connect(server.getLocalAddress())) {
+                    return client.decompress(id, client.compress(id, input));
+                }
+            }));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(seed.substring(i % seed.length()) + seed, results.get(i).get());
+        }
+        pool.shutdown();
+        assertEquals(1, server.codebookCount());
+    }
+
+    @Test
+    public void connectUnixSocket() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("huffman.sock");
+        HuffmanServer unix = new HuffmanServer(UnixDomainSocketAddress.of(path));
+        try (HuffmanClient client = HuffmanClient.connect(unix.getLocalAddress())) {
+            long id = client.register(freq);
+            assertEquals(seed, client.decompress(id, client.compress(id, seed)));
+        } finally {
+            unix.close();
+        }
+        assertFalse(Files.exists(path));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void connectNull() throws IOException {
+        HuffmanClient.connect(null);
+    }
+
+    //close()
+    @Test(expected = IOException.class)
+    public void closeDropsConnections() throws IOException {
+        try (HuffmanClient client = HuffmanClient.connect(server.getLocalAddress())) {
+            long id = client.register(freq);
+            server.close();
+            client.compress(id, seed);
+        }
+    }
+}
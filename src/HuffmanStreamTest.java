@@ -0,0 +1,154 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+public class HuffmanStreamTest {
+    private Huffman hf;
+    private String seed;
+
+    @Before
+    public void setUpHuffmanStreamTest() {
+        seed = "AAggggosAsb";
+        hf = new Huffman(seed);
+    }
+
+    private byte[] compress(String input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (HuffmanOutputStream out = new HuffmanOutputStream(bytes, hf)) {
+            out.write(input);
+        }
+        return bytes.toByteArray();
+    }
+
+    private String decompress(byte[] compressed) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (HuffmanInputStream in = new HuffmanInputStream(
+                new ByteArrayInputStream(compressed), hf)) {
+            int c;
+            while ((c = in.readChar()) != -1) {
+                sb.append((char) c);
+            }
+        }
+        return sb.toString();
+    }
+
+    //HuffmanOutputStream
+    @Test
+    public void outputStreamFormat() throws IOException {
+        byte[] expected = {0, 0, 0, 24, (byte) 0xA0, (byte) 0xFD, (byte) 0x6E, 0, 0, 0, 0};
+        assertArrayEquals(expected, compress(seed));
+    }
+
+    @Test
+    public void outputStreamEmpty() throws IOException {
+        assertArrayEquals(new byte[]{0, 0, 0, 0}, compress(""));
+    }
+
+    @Test
+    public void outputStreamFlushWritesBlock() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HuffmanOutputStream out = new HuffmanOutputStream(bytes, hf);
+        out.write("Asg");
+        out.flush();
+        assertArrayEquals(new byte[]{0, 0, 0, 6, (byte) 0xB0}, bytes.toByteArray());
+        out.write("A");
+        out.close();
+        assertArrayEquals(new byte[]{0, 0, 0, 6, (byte) 0xB0, 0, 0, 0, 2, (byte) 0x80, 0, 0, 0, 0},
+                bytes.toByteArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outputStreamIncompressible() throws IOException {
+        compress(seed + "f");
+    }
+
+    @Test(expected = IOException.class)
+    public void outputStreamWriteAfterFinish() throws IOException {
+        HuffmanOutputStream out = new HuffmanOutputStream(new ByteArrayOutputStream(), hf);
+        out.finish();
+        out.write("A");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outputStreamNullCodebook() {
+        new HuffmanOutputStream(new ByteArrayOutputStream(), null);
+    }
+
+    @Test
+    public void outputStreamTransferFromReader() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (HuffmanOutputStream out = new HuffmanOutputStream(bytes, hf)) {
+            assertEquals(11, out.transferFrom(new StringReader(seed)));
+        }
+        assertEquals(seed, decompress(bytes.toByteArray()));
+    }
+
+    //HuffmanInputStream
+    @Test
+    public void roundTripManyBlocks() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        Random r = new Random(121);
+        for (int i = 0; i < 500000; i++) {
+            sb.append(seed.charAt(r.nextInt(seed.length())));
+        }
+        String input = sb.toString();
+
+        byte[] compressed = compress(input);
+        assertTrue(compressed.length > 2 * HuffmanOutputStream.BLOCK_BYTES);
+        assertEquals(input, decompress(compressed));
+    }
+
+    @Test
+    public void roundTripBytes() throws IOException {
+        Map<Character, Integer> freq = new HashMap<>();
+        for (char c = 0; c < 256; c++) {
+            freq.put(c, c + 1);
+        }
+        hf = new Huffman(freq);
+        byte[] data = new byte[10000];
+        new Random(5).nextBytes(data);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (HuffmanOutputStream out = new HuffmanOutputStream(bytes, hf)) {
+            assertEquals(data.length, out.transferFrom(new ByteArrayInputStream(data)));
+        }
+        HuffmanInputStream in = new HuffmanInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()), hf);
+        byte[] back = new byte[data.length];
+        new DataInputStream(in).readFully(back);
+        assertEquals(-1, in.read());
+        assertArrayEquals(data, back);
+    }
+
+    @Test
+    public void asReader() throws IOException {
+        HuffmanInputStream in = new HuffmanInputStream(new ByteArrayInputStream(compress(seed)), hf);
+        BufferedReader reader = new BufferedReader(in.asReader());
+        assertEquals(seed, reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    @Test(expected = EOFException.class)
+    public void inputStreamTruncated() throws IOException {
+        byte[] compressed = compress(seed);
+        decompress(Arrays.copyOf(compressed, compressed.length - 2));
+    }
+
+    @Test(expected = IOException.class)
+    public void inputStreamNonDecodable() throws IOException {
+        decompress(new byte[]{0, 0, 0, 23, (byte) 0xA0, (byte) 0xFD, (byte) 0x6E, 0, 0, 0, 0});
+    }
+
+    @Test(expected = IOException.class)
+    public void inputStreamReadNonByte() throws IOException {
+        Map<Character, Integer> freq = new HashMap<>();
+        freq.put('a', 1);
+        freq.put('\u0100', 1);
+        hf = new Huffman(freq);
+        new HuffmanInputStream(new ByteArrayInputStream(compress("\u0100")), hf).read();
+    }
+}
@@ -1,9 +1,18 @@
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
 
+import com.sun.management.ThreadMXBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class HuffmanTest {
     private BinaryMinHeapImpl queue;
@@ -44,6 +53,36 @@ public class HuffmanTest {
         assertEquals(7, treeNode.getRight().getFreq());
     }
 
+    @Test
+    public void huffmanLargeSeedMatchesMap() {
+        StringBuilder sb = new StringBuilder();
+        HashMap<Character, Integer> freq = new HashMap<>();
+        Random r = new Random(121);
+        while (sb.length() < Huffman.PARALLEL_HISTOGRAM + 5) {
+            char c = (char) ('a' + Math.abs((int) (r.nextGaussian() * 6)) % 26);
+            sb.append(c);
+            freq.merge(c, 1, Integer::sum);
+        }
+        Huffman hf = new Huffman(sb.toString());
+
+        assertEquals(new Huffman(freq).expectedEncodingLength(), hf.expectedEncodingLength(), 0.0);
+        assertEquals(sb.length(), hf.getTreeNode().getFreq());
+        // freq was filled in first-occurrence order too, so ties break the same way
+        assertEquals(new Huffman(freq).getTreeNode().getAlphabets(),
+                hf.getTreeNode().getAlphabets());
+    }
+
+    @Test
+    public void huffmanSeedTiesKeepCodes() {
+        // codes of earlier versions for the same seeds
+        assertEquals("101000110111", new Huffman("qqaabc").compress("qqaabc"));
+        assertEquals("00110100101111",
+                new Huffman("zzy\u0101\u0201a").compress("zzy\u0101\u0201a"));
+        // counted in parallel, with the same ratios and so the same codes
+        String large = "zzy\u0101\u0201a".repeat(Huffman.PARALLEL_HISTOGRAM / 6 + 1);
+        assertEquals("00110100101111", new Huffman(large).compress("zzy\u0101\u0201a"));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void huffmanBlankSeed() {
         Huffman hf = new Huffman(blankSeed);
@@ -71,6 +110,173 @@ public class HuffmanTest {
         assertEquals(15, treeNode.getRight().getFreq());
     }
 
+    @Test
+    public void huffmanTwoQueueSeedMap() {
+        HashMap<Character, Integer> freq = new HashMap<>();
+        freq.put('A', 3);
+        freq.put('g', 4);
+        freq.put('o', 1);
+        freq.put('s', 2);
+        freq.put('b', 1);
+        Huffman hf = new Huffman(freq, Huffman.Construction.TWO_QUEUE);
+        treeNode = hf.getTreeNode();
+
+        assertEquals("sboAg", treeNode.getAlphabets());
+        assertEquals(11, treeNode.getFreq());
+        assertEquals("s", treeNode.getLeft().getLeft().getAlphabets());
+        assertEquals("00", treeNode.getLeft().getLeft().getBits());
+        assertEquals("011", treeNode.getLeft().getRight().getRight().getBits());
+        assertEquals("g", treeNode.getRight().getRight().getAlphabets());
+        assertEquals(new Huffman(seed).expectedEncodingLength(), hf.expectedEncodingLength(),
+                1e-12);
+    }
+
+    @Test
+    public void huffmanTwoQueueMatchesHeapCost() {
+        Random r = new Random(121);
+        for (int t = 0; t < 20; t++) {
+            HashMap<Character, Integer> freq = new HashMap<>();
+            int n = 2 + r.nextInt(500);
+            for (int i = 0; i < n; i++) {
+                freq.put((char) r.nextInt(65536), 1 + r.nextInt(t % 2 == 0 ? 10 : 1 << 20));
+            }
+            if (freq.size() < 2) {
+                continue;
+            }
+            Huffman heap = new Huffman(freq);
+            Huffman twoQueue = new Huffman(freq, Huffman.Construction.TWO_QUEUE);
+            assertEquals(heap.expectedEncodingLength(), twoQueue.expectedEncodingLength(), 1e-9);
+        }
+    }
+
+    @Test
+    public void huffmanIntHeapMatchesHeap() {
+        Random r = new Random(121);
+        for (int t = 0; t < 20; t++) {
+            HashMap<Character, Integer> freq = new HashMap<>();
+            StringBuilder all = new StringBuilder();
+            int n = 2 + r.nextInt(500);
+            for (int i = 0; i < n; i++) {
+                freq.put((char) r.nextInt(65536), 1 + r.nextInt(t % 2 == 0 ? 10 : 1 << 20));
+            }
+            if (freq.size() < 2) {
+                continue;
+            }
+            for (char c : freq.keySet()) {
+                all.append(c);
+            }
+            Huffman heap = new Huffman(freq);
+            Huffman intHeap = new Huffman(freq, Huffman.Construction.INT_HEAP);
+            assertEquals(heap.compress(all.toString()), intHeap.compress(all.toString()));
+            assertEquals(heap.getTreeNode().getAlphabets(), intHeap.getTreeNode().getAlphabets());
+        }
+    }
+
+    @Test
+    public void huffmanTiesKeepCodes() {
+        // codes of earlier versions for the same maps, which peers rebuilding a codebook from
+        // the frequencies rely on
+        HashMap<Character, Integer> freq = new HashMap<>();
+        freq.put('a', 3);
+        freq.put('b', 3);
+        freq.put('c', 2);
+        freq.put('d', 2);
+        assertEquals("10110001", new Huffman(freq).compress("abcd"));
+        assertEquals("10110001", new Huffman(freq, Huffman.Construction.INT_HEAP).compress("abcd"));
+
+        freq.clear();
+        for (char c : "vwxyz".toCharArray()) {
+            freq.put(c, 1);
+        }
+        assertEquals("001111011001", new Huffman(freq).compress("vwxyz"));
+
+        // colliding in a small HashMap
+        freq.clear();
+        freq.put('a', 2);
+        freq.put('\u0101', 2);
+        freq.put('\u0201', 2);
+        freq.put('b', 1);
+        freq.put('c', 1);
+        assertEquals("110010010011", new Huffman(freq).compress("a\u0101\u0201bc"));
+    }
+
+    @Test
+    public void huffmanRadixMatchesHeapCost() {
+        Random r = new Random(121);
+        for (int t = 0; t < 20; t++) {
+            HashMap<Character, Integer> freq = new HashMap<>();
+            int n = 2 + r.nextInt(500);
+            for (int i = 0; i < n; i++) {
+                freq.put((char) r.nextInt(65536), 1 + r.nextInt(t % 2 == 0 ? 10 : 1 << 20));
+            }
+            if (freq.size() < 2) {
+                continue;
+            }
+            Huffman heap = new Huffman(freq);
+            Huffman radix = new Huffman(freq, Huffman.Construction.RADIX);
+            assertEquals(heap.expectedEncodingLength(), radix.expectedEncodingLength(), 1e-9);
+            assertEquals(freq.size(), radix.getTreeNode().getAlphabets().length());
+        }
+    }
+
+    @Test
+    public void huffmanMaxCodeLength() {
+        HashMap<Character, Integer> fib = new HashMap<>();
+        int f1 = 1;
+        int f2 = 1;
+        for (char c = 'a'; c <= 'x'; c++) {
+            fib.put(c, f1);
+            int f = f1 + f2;
+            f1 = f2;
+            f2 = f;
+        }
+        Huffman unlimited = new Huffman(fib);
+        Huffman limited = new Huffman(fib, 12);
+        String input = "abcdefghijklmnopqrstuvwxxwvutsrqponmlkjihgfedcba";
+
+        assertTrue(limited.isCanonical());
+        assertTrue(limited.compress(input).length() < unlimited.compress(input).length());
+        assertEquals(input, limited.decompress(limited.compress(input)));
+        assertEquals(12, limited.compress("a").length());
+        assertEquals(0.0, unlimited.lengthLimitPenalty(), 1e-12);
+        assertTrue(limited.lengthLimitPenalty() > 0);
+        assertEquals(unlimited.expectedEncodingLength() + limited.lengthLimitPenalty(),
+                limited.expectedEncodingLength(), 1e-12);
+    }
+
+    @Test
+    public void huffmanMaxCodeLengthLoose() {
+        Huffman hf = new Huffman(map, 15);
+        assertEquals(new Huffman(map).expectedEncodingLength(), hf.expectedEncodingLength(), 1e-12);
+        assertEquals(0.0, hf.lengthLimitPenalty(), 1e-12);
+    }
+
+    @Test
+    public void huffmanMaxCodeLengthTight() {
+        map.remove('1');
+        Huffman hf = new Huffman(map, 2);
+        assertEquals("00011011", hf.compress("4678"));
+        assertEquals(0.0, new Huffman(map).lengthLimitPenalty(), 1e-12);
+        assertEquals(2.0 - new Huffman(map).expectedEncodingLength(), hf.lengthLimitPenalty(),
+                1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void huffmanMaxCodeLengthTooShort() {
+        new Huffman(map, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void huffmanNullConstruction() {
+        new Huffman(map, (Huffman.Construction) null);
+    }
+
+    @Test
+    public void sortByFrequency() {
+        int[] freq = {300, 5, 70000, 5, 1, 300};
+        assertArrayEquals(new int[]{4, 1, 3, 0, 5, 2}, Huffman.sortByFrequency(freq));
+    }
+
     @Test
     public void huffmanBitTestMap() {
         Huffman hf = new Huffman(map);
@@ -135,6 +341,47 @@ public class HuffmanTest {
 
     }
 
+    @Test
+    public void huffmanMapCopied() {
+        Huffman hf = new Huffman(map);
+        double expected = hf.expectedEncodingLength();
+        map.put('9', 100);
+        map.put('1', 50);
+        assertEquals(expected, hf.expectedEncodingLength(), 0.0);
+        assertEquals(26, hf.getSeedString().length());
+    }
+
+    @Test
+    public void huffmanFullCharAlphabet() {
+        HashMap<Character, Integer> freq = new HashMap<>();
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            freq.put((char) c, 1 + c % 7);
+        }
+        Huffman hf = new Huffman(freq);
+        treeNode = hf.getTreeNode();
+        assertEquals(Character.MAX_VALUE + 1, treeNode.getAlphabets().length());
+        assertNull(treeNode.getBits());
+
+        Huffman.TreeNode leaf = treeNode;
+        while (!leaf.isLeaf()) {
+            leaf = leaf.getLeft();
+        }
+        assertNull(leaf.getLeft());
+        assertEquals(hf.compress(leaf.getAlphabets()), leaf.getBits());
+    }
+
+    @Test
+    public void huffmanCanonicalTreeMatchesCodes() {
+        Huffman hf = new Huffman(seed).toCanonical();
+        treeNode = hf.getTreeNode();
+        assertEquals(11, treeNode.getFreq());
+        assertEquals("g", treeNode.getLeft().getAlphabets());
+        assertEquals("0", treeNode.getLeft().getBits());
+        Huffman.TreeNode tno = treeNode.getRight().getRight().getRight().getRight();
+        assertEquals(hf.compress(tno.getAlphabets()), tno.getBits());
+        assertEquals(4, tno.getBits().length());
+    }
+
     //compress()
     @Test
     public void compressSeed() {
@@ -172,6 +419,245 @@ public class HuffmanTest {
         assertEquals("101000001111110101101110", hf.compress(nullSeed));
     }
 
+    //compressToBytes()
+    @Test
+    public void compressToBytesSeed() {
+        Huffman hf = new Huffman(seed);
+
+        // 10100000 11111101 01101110
+        byte[] expected = {(byte) 0xA0, (byte) 0xFD, (byte) 0x6E};
+        assertArrayEquals(expected, hf.compressToBytes(seed));
+    }
+
+    @Test
+    public void compressToBytesPadsLastByte() {
+        Huffman hf = new Huffman(seed);
+
+        // 10 110 0 -> 10110000
+        assertArrayEquals(new byte[]{(byte) 0xB0}, hf.compressToBytes("Asg"));
+    }
+
+    @Test
+    public void compressToBytesBlankSeed() {
+        Huffman hf = new Huffman(seed);
+        assertEquals(0, hf.compressToBytes(blankSeed).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressToBytesIncompressibleSeed() {
+        Huffman hf = new Huffman(seed);
+        hf.compressToBytes(seed + "f");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressToBytesNullSeed() {
+        Huffman hf = new Huffman(seed);
+        hf.compressToBytes(nullSeed);
+    }
+
+    //compressTo()
+    @Test
+    public void compressToBuffer() {
+        Huffman hf = new Huffman(seed);
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        buf.put((byte) 7);
+
+        assertEquals(24, hf.compressTo(seed, buf));
+        assertEquals(4, buf.position());
+        assertEquals((byte) 0xA0, buf.get(1));
+        assertEquals((byte) 0x6E, buf.get(3));
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void compressToBufferTooSmall() {
+        Huffman hf = new Huffman(seed);
+        hf.compressTo(seed, ByteBuffer.allocate(2));
+    }
+
+    @Test
+    public void compressToRange() {
+        Huffman hf = new Huffman(seed);
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        assertEquals(24, hf.compressTo("xx" + seed + "x", 2, 13, buf));
+        assertArrayEquals(new byte[]{(byte) 0xA0, (byte) 0xFD, (byte) 0x6E, 0}, buf.array());
+        buf.clear();
+        assertEquals(5, hf.compressTo(seed.toCharArray(), 0, 3, buf));
+        assertEquals(1, buf.position());
+        assertEquals((byte) 0xA0, buf.get(0));
+    }
+
+    @Test
+    public void compressToLittleEndianBuffer() {
+        Huffman hf = new Huffman(seed);
+        String input = seed + seed + seed + seed;
+        ByteBuffer buf = ByteBuffer.allocate(12).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+        assertEquals(96, hf.compressTo(input, 0, input.length(), buf));
+        assertArrayEquals(hf.compressToBytes(input), buf.array());
+    }
+
+    @Test
+    public void compressToWords() {
+        Huffman hf = new Huffman(seed);
+        long[] words = new long[2];
+        String input = seed + seed + seed;
+        assertEquals(72, hf.compressTo(input, 0, input.length(), words));
+        assertEquals(0xA0FD6EA0FD6EA0FDL, words[0]);
+        assertEquals(0x6E00000000000000L, words[1]);
+        assertEquals(24, hf.compressTo(seed.toCharArray(), 0, 11, words));
+        assertEquals(0xA0FD6E0000000000L, words[0]);
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void compressToWordsTooSmall() {
+        Huffman hf = new Huffman(seed);
+        String input = seed + seed + seed;
+        hf.compressTo(input, 0, input.length(), new long[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressToRangeOutOfBounds() {
+        new Huffman(seed).compressTo(seed.toCharArray(), 5, 7, new long[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressToRangeIncompressible() {
+        new Huffman(seed).compressTo("Az", 0, 2, ByteBuffer.allocate(8));
+    }
+
+    @Test
+    public void compressToRangeStatistics() {
+        Huffman hf = new Huffman(seed);
+        hf.compressTo(seed, 0, seed.length(), new long[1]);
+        double ratio = (double) 24.0 / (double) (11.0 * 16.0);
+        assertEquals(ratio, hf.compressionRatio(), 0.0);
+    }
+
+    //compressParallel()
+    @Test
+    public void compressParallelMatchesStream() throws IOException {
+        Huffman hf = new Huffman(seed);
+        StringBuilder sb = new StringBuilder();
+        Random r = new Random(121);
+        for (int i = 0; i < 3 * Huffman.PARALLEL_CHUNK + 100; i++) {
+            sb.append(seed.charAt(r.nextInt(seed.length())));
+        }
+        String input = sb.toString();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        byte[] compressed;
+        try {
+            compressed = hf.compressParallel(input, pool);
+        } finally {
+            pool.shutdown();
+        }
+        HuffmanInputStream in = new HuffmanInputStream(
+                new ByteArrayInputStream(compressed), hf);
+        StringBuilder out = new StringBuilder();
+        int c;
+        while ((c = in.readChar()) != -1) {
+            out.append((char) c);
+        }
+        assertEquals(input, out.toString());
+        assertEquals(hf.compress(input).length(), hf.compressionRatio() * input.length() * 16, 1e-6);
+    }
+
+    @Test
+    public void compressParallelBlankSeed() {
+        Huffman hf = new Huffman(seed);
+        assertArrayEquals(new byte[]{0, 0, 0, 0}, hf.compressParallel(blankSeed));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressParallelIncompressibleSeed() {
+        Huffman hf = new Huffman(seed);
+        hf.compressParallel(seed + "f");
+    }
+
+    //compressBatch()
+    @Test
+    public void compressBatchLayout() {
+        Huffman hf = new Huffman(seed);
+        CompressedBatch batch = hf.compressBatch(Arrays.asList(seed, "", "AAg", seed + seed));
+        assertEquals(4, batch.size());
+        assertArrayEquals(new long[]{0, 24, 24, 29, 77}, batch.offsets());
+        assertEquals(5, batch.bitLength(2));
+        assertEquals(77, batch.totalBits());
+        assertEquals(2, batch.words().length);
+        assertEquals(0xA0FD6EA5_07EB7507L, batch.words()[0]);
+    }
+
+    @Test
+    public void compressBatchRoundTrip() {
+        Map<Character, Integer> freq = new HashMap<>();
+        Random r = new Random(18);
+        for (char c = ' '; c < 127; c++) {
+            freq.put(c, 1 + r.nextInt(100));
+        }
+        Huffman hf = new Huffman(freq);
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 50 + r.nextInt(150); j > 0; j--) {
+                sb.append((char) (' ' + r.nextInt(95)));
+            }
+            messages.add(sb.toString());
+        }
+        CompressedBatch batch = hf.compressBatch(messages);
+        assertEquals(messages, hf.decompressBatch(batch));
+        assertEquals(messages.get(321), hf.decompressBatch(batch, 321));
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals(hf.compress(messages.get(i)).length(), batch.bitLength(i));
+        }
+    }
+
+    @Test
+    public void compressBatchStatistics() {
+        Huffman hf = new Huffman(seed);
+        hf.compressBatch(Arrays.asList(seed, seed));
+        double ratio = (double) 48.0 / (double) (22.0 * 16.0);
+        assertEquals(ratio, hf.compressionRatio(), 0.0);
+    }
+
+    @Test
+    public void compressBatchEmpty() {
+        Huffman hf = new Huffman(seed);
+        CompressedBatch batch = hf.compressBatch(new ArrayList<String>());
+        assertEquals(0, batch.size());
+        assertEquals(new ArrayList<String>(), hf.decompressBatch(batch));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressBatchIncompressible() {
+        new Huffman(seed).compressBatch(Arrays.asList(seed, "z"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressBatchNullMessage() {
+        new Huffman(seed).compressBatch(Arrays.asList(seed, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressBatchNonDecodable() {
+        Huffman hf = new Huffman(seed);
+        hf.decompressBatch(new CompressedBatch(new long[]{0xA0FD6E0000000000L}, new long[]{0, 23}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressBatchIndexOutOfRange() {
+        Huffman hf = new Huffman(seed);
+        hf.decompressBatch(hf.compressBatch(Arrays.asList(seed)), 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressedBatchOffsetsDecrease() {
+        new CompressedBatch(new long[1], new long[]{0, 10, 5});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressedBatchOffsetsPastEnd() {
+        new CompressedBatch(new long[1], new long[]{0, 65});
+    }
+
     //decompress()
     @Test
     public void decompressSeed() {
@@ -211,6 +697,68 @@ public class HuffmanTest {
         assertEquals(seed, hf.decompress("105"));
     }
 
+    @Test
+    public void decompressBytesSeed() {
+        Huffman hf = new Huffman(seed);
+        byte[] bytes = {(byte) 0xA0, (byte) 0xFD, (byte) 0x6E};
+
+        assertEquals(seed, hf.decompress(bytes, 24));
+        assertEquals("A", hf.decompress(bytes, 2));
+    }
+
+    @Test
+    public void compressDecompressBytesLong() {
+        Huffman hf = new Huffman(map);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("14678".charAt((i * 7) % 5));
+        }
+        String input = sb.toString();
+
+        byte[] bytes = hf.compressToBytes(input);
+        assertEquals(hf.compress(input).length(), hf.compressTo(input,
+                ByteBuffer.allocate(bytes.length)));
+        assertEquals(input, hf.decompress(bytes, hf.compress(input).length()));
+    }
+
+    @Test
+    public void compressDecompressLongCodes() {
+        HashMap<Character, Integer> fib = new HashMap<>();
+        int f1 = 1;
+        int f2 = 1;
+        for (char c = 'a'; c <= 'x'; c++) {
+            fib.put(c, f1);
+            int f = f1 + f2;
+            f1 = f2;
+            f2 = f;
+        }
+        Huffman hf = new Huffman(fib);
+        String input = "abcdefghijklmnopqrstuvwxxwvutsrqponmlkjihgfedcba";
+        String bits = hf.compress(input);
+
+        assertTrue(bits.length() > 200);
+        assertEquals(input, hf.decompress(bits));
+        assertEquals(input, hf.decompress(hf.compressToBytes(input), bits.length()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressBytesNonDecodable() {
+        Huffman hf = new Huffman(seed);
+        hf.decompress(new byte[]{(byte) 0xA0, (byte) 0xFD, (byte) 0x6E}, 23);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressBytesTooLong() {
+        Huffman hf = new Huffman(seed);
+        hf.decompress(new byte[]{(byte) 0xA0}, 9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressBytesNull() {
+        Huffman hf = new Huffman(seed);
+        hf.decompress(null, 0);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void decompressNullSeed() {
         Huffman hf = new Huffman(seed);
@@ -218,6 +766,174 @@ public class HuffmanTest {
         assertEquals(seed, hf.decompress(null));
     }
 
+    //decompressTo()
+    @Test
+    public void decompressToChars() {
+        Huffman hf = new Huffman(seed);
+        ByteBuffer src = ByteBuffer.wrap(new byte[]{1, (byte) 0xA0, (byte) 0xFD, (byte) 0x6E, 2});
+        src.get();
+        char[] dst = new char[13];
+        assertEquals(11, hf.decompressTo(src, 24, dst, 1));
+        assertEquals(seed, new String(dst, 1, 11));
+        assertEquals(4, src.position());
+    }
+
+    @Test
+    public void decompressToCharBuffer() {
+        Huffman hf = new Huffman(seed);
+        String input = seed + seed + seed + seed + seed;
+        ByteBuffer src = ByteBuffer.wrap(hf.compressToBytes(input))
+                .order(java.nio.ByteOrder.LITTLE_ENDIAN);
+        java.nio.CharBuffer dst = java.nio.CharBuffer.allocate(60);
+        assertEquals(55, hf.decompressTo(src, 120, dst));
+        dst.flip();
+        assertEquals(input, dst.toString());
+    }
+
+    @Test
+    public void decompressToWordsRoundTrip() {
+        Map<Character, Integer> freq = new HashMap<>();
+        Random r = new Random(17);
+        for (char c = 'a'; c < 'a' + 300; c++) {
+            freq.put(c, 1 + r.nextInt(1000));
+        }
+        Huffman hf = new Huffman(freq);
+        char[] input = new char[5000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (char) ('a' + r.nextInt(300));
+        }
+        long[] words = new long[5000];
+        long bits = hf.compressTo(input, 0, input.length, words);
+        char[] back = new char[input.length];
+        assertEquals(input.length, hf.decompressTo(words, bits, back, 0));
+        assertArrayEquals(input, back);
+
+        ByteBuffer buf = ByteBuffer.allocate(40000);
+        assertEquals(bits, hf.compressTo(new String(input), 0, input.length, buf));
+        buf.flip();
+        back = new char[input.length];
+        assertEquals(input.length, hf.decompressTo(buf, bits, back, 0));
+        assertArrayEquals(input, back);
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void decompressToTooSmall() {
+        Huffman hf = new Huffman(seed);
+        hf.decompressTo(ByteBuffer.wrap(hf.compressToBytes(seed)), 24, new char[10], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressToNonDecodable() {
+        Huffman hf = new Huffman(seed);
+        hf.decompressTo(new long[]{0xA0FD6E0000000000L}, 23, new char[20], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressToBitLengthTooLong() {
+        new Huffman(seed).decompressTo(new long[1], 65, new char[100], 0);
+    }
+
+    @Test
+    public void decompressToNoAllocation() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Huffman hf = new Huffman(seed);
+        char[] input = (seed + seed + seed).toCharArray();
+        long[] words = new long[2];
+        char[] back = new char[input.length];
+        hf.compressTo(input, 0, input.length, words);
+        hf.decompressTo(words, 72, back, 0);
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+        for (int i = 0; i < 1000; i++) {
+            hf.compressTo(input, 0, input.length, words);
+            hf.decompressTo(words, 72, back, 0);
+        }
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().threadId()) - before;
+        assertTrue(allocated < 1000);
+    }
+
+    //toCanonical()
+    @Test
+    public void toCanonicalMap() {
+        Huffman hf = new Huffman(map).toCanonical();
+        treeNode = hf.getTreeNode();
+
+        assertTrue(hf.isCanonical());
+        assertEquals("00", treeNode.getLeft().getLeft().getBits());
+        assertEquals("6", treeNode.getLeft().getLeft().getAlphabets());
+        assertEquals("110", treeNode.getRight().getRight().getLeft().getBits());
+        assertEquals("1", treeNode.getRight().getRight().getLeft().getAlphabets());
+        assertEquals("111", treeNode.getRight().getRight().getRight().getBits());
+        assertEquals("4", treeNode.getRight().getRight().getRight().getAlphabets());
+        assertEquals(26, treeNode.getFreq());
+    }
+
+    @Test
+    public void toCanonicalKeepsExpectedEncodingLength() {
+        Huffman hf = new Huffman(seed);
+        assertFalse(hf.isCanonical());
+        assertEquals(hf.expectedEncodingLength(), hf.toCanonical().expectedEncodingLength(), 1e-12);
+    }
+
+    //getHeader()
+    @Test
+    public void getHeaderMap() {
+        Huffman hf = new Huffman(map).toCanonical();
+        byte[] expected = {3, 0, 3, 2, '6', 1, 1, '1', 3};
+        assertArrayEquals(expected, hf.getHeader());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getHeaderNotCanonical() {
+        Huffman hf = new Huffman(map);
+        hf.getHeader();
+    }
+
+    //fromHeader()
+    @Test
+    public void fromHeaderRoundTrip() {
+        Huffman sender = new Huffman(seed).toCanonical();
+        Huffman receiver = Huffman.fromHeader(sender.getHeader());
+
+        assertEquals(sender.compress(seed), receiver.compress(seed));
+        assertEquals(seed, receiver.decompress(sender.compress(seed)));
+        assertNull(receiver.getSeedString());
+    }
+
+    @Test
+    public void fromHeaderAdvancesBuffer() {
+        Huffman hf = new Huffman(map).toCanonical();
+        ByteBuffer buf = ByteBuffer.allocate(20);
+        hf.writeHeader(buf);
+        buf.put((byte) 42);
+        buf.flip();
+
+        Huffman.fromHeader(buf);
+        assertEquals(42, buf.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void fromHeaderNoExpectedEncodingLength() {
+        Huffman hf = Huffman.fromHeader(new Huffman(map).toCanonical().getHeader());
+        hf.expectedEncodingLength();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromHeaderIncomplete() {
+        Huffman.fromHeader(new byte[]{2, 1, 1, 'a', 'b'});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromHeaderTruncated() {
+        Huffman.fromHeader(new byte[]{3, 0, 3, 2, '6', 1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromHeaderNull() {
+        Huffman.fromHeader((byte[]) null);
+    }
+
     //compressionRatio()
     @Test
     public void compressionRatioSeedString() {
@@ -228,6 +944,14 @@ public class HuffmanTest {
         assertEquals(ratio, hf.compressionRatio(), 0.0);
     }
 
+    @Test
+    public void compressionRatioBytes() {
+        Huffman hf = new Huffman(seed);
+        hf.compressToBytes(seed);
+        double ratio = (double) 24.0 / (double) (11.0 * 16.0);
+        assertEquals(ratio, hf.compressionRatio(), 0.0);
+    }
+
     @Test(expected = IllegalStateException.class)
     public void compressionRatioNoCallBefore() {
         Huffman hf = new Huffman(seed);
@@ -254,6 +978,34 @@ public class HuffmanTest {
         assertEquals(ratio, hf.compressionRatio(), 0.0);
     }
 
+    @Test
+    public void compressionRatioConcurrent() throws InterruptedException {
+        Huffman hf = new Huffman(seed);
+        String expected = hf.compress(seed);
+        Thread[] threads = new Thread[8];
+        boolean[] ok = new boolean[threads.length];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                boolean same = true;
+                for (int i = 0; i < 1000; i++) {
+                    same &= expected.equals(hf.compress(seed));
+                    same &= seed.equals(hf.decompress(expected));
+                }
+                ok[id] = same;
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (boolean same : ok) {
+            assertTrue(same);
+        }
+        double ratio = (double) 24.0 / (double) (11.0 * 16.0);
+        assertEquals(ratio, hf.compressionRatio(), 1e-12);
+    }
+
     //expectedEncodingLength()
     @Test
     public void expectedEncodingLengthSeedString() {
@@ -0,0 +1,309 @@
+import java.util.*;
+
+/**
+ * A min-heap of {@code int} keys whose values are dense {@code int} ids, such as the node numbers
+ * of a {@link CodeTree}. Keys and values live in parallel arrays in heap order, and a third array
+ * maps each id to its position, so no operation allocates, boxes or hashes, and sifting moves a
+ * hole instead of swapping entries.
+ * <p>
+ * Sifts compare exactly as {@link BinaryMinHeapImpl} does, so the same sequence of operations
+ * leaves values in the same positions and ties are broken the same way. The primitive methods
+ * {@link #add(int, int)}, {@link #decreaseKey(int, int)}, {@link #peekKey()}, {@link
+ * #peekValue()} and {@link #removeMin()} avoid the boxing of the {@link BinaryMinHeap} methods.
+ */
+public class IntMinHeap implements BinaryMinHeap<Integer, Integer> {
+
+    private final int[] keys;
+    private final int[] values;
+    private final int[] position;
+    private final HuffmanMetrics metrics;
+    private int size;
+
+    /**
+     * Creates an empty heap for the values {@code 0} to {@code capacity - 1}.
+     *
+     * @param capacity one more than the largest value
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public IntMinHeap(int capacity) {
+        this(capacity, HuffmanMetrics.NOOP);
+    }
+
+    /**
+     * Creates an empty heap for the values {@code 0} to {@code capacity - 1} that reports each
+     * add, extractMin and decreaseKey to the given metrics.
+     *
+     * @param capacity one more than the largest value
+     * @param metrics  where to report operations
+     * @throws IllegalArgumentException if capacity is negative or metrics is null
+     */
+    public IntMinHeap(int capacity, HuffmanMetrics metrics) {
+        if (capacity < 0 || metrics == null) {
+            throw new IllegalArgumentException();
+        }
+        keys = new int[capacity];
+        values = new int[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+        this.metrics = metrics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return true if the value is in range and in the heap
+     */
+    public boolean contains(int value) {
+        return value >= 0 && value < position.length && position[value] >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsValue(Integer value) {
+        return value != null && contains(value);
+    }
+
+    /**
+     * Adds a value with the given key.
+     *
+     * @throws IllegalArgumentException if the value is out of range or already in the heap
+     */
+    public void add(int key, int value) {
+        if (value < 0 || value >= position.length || position[value] >= 0) {
+            throw new IllegalArgumentException();
+        }
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.ADD);
+        siftUp(size++, key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if value is null or out of range
+     */
+    @Override
+    public void add(Integer key, Integer value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException();
+        }
+        add(key.intValue(), value.intValue());
+    }
+
+    /**
+     * Adds values with the given keys all at once, then restores the heap property bottom-up as
+     * {@link BinaryMinHeapImpl#addAll(Collection)} does, in O(n + m) for m values added to n.
+     *
+     * @param keys   the keys, one for each value
+     * @param values the values to add
+     * @throws IllegalArgumentException if either array is null, they differ in length, or a value
+     *                                  is out of range, already in the heap or repeated
+     */
+    public void addAll(int[] keys, int[] values) {
+        if (keys == null || values == null || keys.length != values.length) {
+            throw new IllegalArgumentException();
+        }
+        // claim positions first, so that repeated values are caught, and undo on failure
+        for (int i = 0; i < values.length; i++) {
+            int value = values[i];
+            if (value < 0 || value >= position.length || position[value] >= 0) {
+                for (int j = 0; j < i; j++) {
+                    position[values[j]] = -1;
+                }
+                throw new IllegalArgumentException();
+            }
+            position[value] = size + i;
+        }
+        for (int i = 0; i < values.length; i++) {
+            metrics.heapOperation(HuffmanMetrics.HeapOperation.ADD);
+            this.keys[size] = keys[i];
+            this.values[size++] = values[i];
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i, this.keys[i], this.values[i]);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Builds the heap bottom-up through {@link #addAll(int[], int[])}.
+     */
+    @Override
+    public void addAll(Collection<? extends Entry<Integer, Integer>> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException();
+        }
+        int[] k = new int[entries.size()];
+        int[] v = new int[entries.size()];
+        int i = 0;
+        for (Entry<Integer, Integer> e : entries) {
+            if (e == null || e.key == null || e.value == null) {
+                throw new IllegalArgumentException();
+            }
+            k[i] = e.key;
+            v[i++] = e.value;
+        }
+        addAll(k, v);
+    }
+
+    /**
+     * Decreases the key of a value.
+     *
+     * @throws NoSuchElementException   if value is not in the heap
+     * @throws IllegalArgumentException if newKey is greater than the value's key
+     */
+    public void decreaseKey(int value, int newKey) {
+        if (!contains(value)) {
+            throw new NoSuchElementException();
+        }
+        int i = position[value];
+        if (newKey > keys[i]) {
+            throw new IllegalArgumentException();
+        }
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.DECREASE_KEY);
+        siftUp(i, newKey, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void decreaseKey(Integer value, Integer newKey) {
+        if (!containsValue(value)) {
+            throw new NoSuchElementException();
+        }
+        if (newKey == null) {
+            throw new IllegalArgumentException();
+        }
+        decreaseKey(value.intValue(), newKey.intValue());
+    }
+
+    private void siftUp(int i, int key, int value) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (keys[parent] <= key) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+        position[value] = i;
+    }
+
+    private void siftDown(int i, int key, int value) {
+        while (true) {
+            int smallest = i;
+            int smallestKey = key;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && keys[left] < smallestKey) {
+                smallest = left;
+                smallestKey = keys[left];
+            }
+            if (right < size && keys[right] < smallestKey) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                break;
+            }
+            move(smallest, i);
+            i = smallest;
+        }
+        keys[i] = key;
+        values[i] = value;
+        position[value] = i;
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        values[to] = values[from];
+        position[values[to]] = to;
+    }
+
+    /**
+     * @return the smallest key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int peekKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return keys[0];
+    }
+
+    /**
+     * @return the value with the smallest key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int peekValue() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return values[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry<Integer, Integer> peek() {
+        return new Entry<>(peekKey(), peekValue());
+    }
+
+    /**
+     * Removes the value with the smallest key; read the key with {@link #peekKey()} first if
+     * needed.
+     *
+     * @return the value removed
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int removeMin() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.EXTRACT_MIN);
+        int min = values[0];
+        position[min] = -1;
+        size--;
+        if (size > 0) {
+            siftDown(0, keys[size], values[size]);
+        }
+        return min;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry<Integer, Integer> extractMin() {
+        int key = peekKey();
+        return new Entry<>(key, removeMin());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Integer> values() {
+        Set<Integer> set = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            set.add(values[i]);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,161 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class IntMinHeapTest {
+
+    //add()
+    @Test
+    public void addPeekSmallest() {
+        IntMinHeap heap = new IntMinHeap(10);
+        heap.add(5, 1);
+        heap.add(8, 4);
+        heap.add(3, 7);
+        assertEquals(3, heap.peekKey());
+        assertEquals(7, heap.peekValue());
+        assertEquals(3, heap.size());
+        assertTrue(heap.contains(4));
+        assertFalse(heap.contains(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addOutOfRange() {
+        new IntMinHeap(4).add(1, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addNullValue() {
+        new IntMinHeap(4).add(1, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addExistingValue() {
+        IntMinHeap heap = new IntMinHeap(4);
+        heap.add(1, 2);
+        heap.add(3, 2);
+    }
+
+    //addAll()
+    @Test
+    public void addAllMatchesBinaryMinHeapImpl() {
+        Random r = new Random(121);
+        int[] keys = new int[300];
+        int[] values = new int[300];
+        List<BinaryMinHeap.Entry<Integer, Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = r.nextInt(20);
+            values[i] = keys.length - 1 - i;
+            entries.add(new BinaryMinHeap.Entry<>(keys[i], values[i]));
+        }
+        IntMinHeap heap = new IntMinHeap(keys.length);
+        heap.addAll(keys, values);
+        BinaryMinHeapImpl<Integer, Integer> reference = new BinaryMinHeapImpl<>(entries);
+        while (!reference.isEmpty()) {
+            BinaryMinHeap.Entry<Integer, Integer> expected = reference.extractMin();
+            assertEquals((int) expected.key, heap.peekKey());
+            assertEquals((int) expected.value, heap.removeMin());
+        }
+    }
+
+    @Test
+    public void addAllRepeatedValueUnchanged() {
+        IntMinHeap heap = new IntMinHeap(4);
+        heap.add(3, 0);
+        try {
+            heap.addAll(new int[]{1, 2}, new int[]{2, 2});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, heap.size());
+            assertFalse(heap.contains(2));
+        }
+    }
+
+    //extractMin()
+    @Test
+    public void extractMinMatchesBinaryMinHeapImpl() {
+        Random r = new Random(121);
+        IntMinHeap heap = new IntMinHeap(2000);
+        BinaryMinHeapImpl<Integer, Integer> reference = new BinaryMinHeapImpl<>();
+        int next = 0;
+        for (int step = 0; step < 5000; step++) {
+            int op = r.nextInt(3);
+            if (op == 0 && next < 2000) {
+                int key = r.nextInt(50);
+                heap.add(key, next);
+                reference.add(key, next++);
+            } else if (op == 1 && !reference.isEmpty()) {
+                BinaryMinHeap.Entry<Integer, Integer> expected = reference.extractMin();
+                BinaryMinHeap.Entry<Integer, Integer> actual = heap.extractMin();
+                assertEquals(expected.key, actual.key);
+                assertEquals(expected.value, actual.value);
+            } else if (!reference.isEmpty()) {
+                int value = reference.values().iterator().next();
+                int key = reference.getHeap().get(reference.getHeapIndex().get(value)).key;
+                int newKey = key - r.nextInt(10);
+                heap.decreaseKey(value, newKey);
+                reference.decreaseKey(value, newKey);
+            }
+            assertEquals(reference.size(), heap.size());
+        }
+    }
+
+    @Test
+    public void removeMinFreesValue() {
+        IntMinHeap heap = new IntMinHeap(2);
+        heap.add(4, 0);
+        heap.add(2, 1);
+        assertEquals(1, heap.removeMin());
+        assertFalse(heap.contains(1));
+        heap.add(9, 1);
+        assertEquals(0, heap.removeMin());
+        assertEquals(1, heap.removeMin());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void extractMinEmpty() {
+        new IntMinHeap(4).extractMin();
+    }
+
+    //decreaseKey()
+    @Test
+    public void decreaseKeyMovesToFront() {
+        IntMinHeap heap = new IntMinHeap(10);
+        heap.add(5, 1);
+        heap.add(8, 4);
+        heap.add(3, 7);
+        heap.decreaseKey(4, 1);
+        assertEquals(4, heap.removeMin());
+        assertEquals(7, heap.removeMin());
+        assertEquals(1, heap.removeMin());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decreaseKeyLarger() {
+        IntMinHeap heap = new IntMinHeap(4);
+        heap.add(5, 1);
+        heap.decreaseKey(1, 6);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void decreaseKeyMissing() {
+        new IntMinHeap(4).decreaseKey(1, 0);
+    }
+
+    //peek()
+    @Test(expected = NoSuchElementException.class)
+    public void peekEmpty() {
+        new IntMinHeap(4).peek();
+    }
+
+    //values()
+    @Test
+    public void valuesAll() {
+        IntMinHeap heap = new IntMinHeap(10);
+        heap.add(5, 1);
+        heap.add(3, 7);
+        assertEquals(new HashSet<>(Arrays.asList(1, 7)), heap.values());
+    }
+}
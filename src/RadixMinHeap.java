@@ -0,0 +1,221 @@
+import java.util.*;
+
+/**
+ * A monotone min-heap of {@code int} keys: no key may be added, or decreased to, below the last
+ * key extracted. Huffman merging satisfies this, since every merged key is the sum of two keys
+ * just extracted. Under that restriction a radix heap does all operations in amortized O(1) for
+ * 32-bit keys, against O(log n) for {@link BinaryMinHeapImpl}.
+ * <p>
+ * Entries are kept in 33 buckets by the highest bit in which their key differs from the last key
+ * extracted: bucket 0 holds keys equal to it and bucket {@code b} keys that first differ at bit
+ * {@code b - 1}. Extracting from an empty bucket 0 finds the smallest key in the first non-empty
+ * bucket, makes it the new last key and redistributes that bucket, every entry of which moves to
+ * a strictly lower bucket. Each entry can therefore move at most 32 times in its life.
+ * <p>
+ * Ties between equal keys are broken arbitrarily, and differently from {@link
+ * BinaryMinHeapImpl}.
+ *
+ * @param <V> {@inheritDoc}
+ */
+public class RadixMinHeap<V> implements BinaryMinHeap<Integer, V> {
+
+    private static final int BUCKETS = 33;
+
+    private final List<List<Node<V>>> buckets = new ArrayList<>(BUCKETS);
+    private final Map<V, Node<V>> index = new HashMap<>();
+    private final HuffmanMetrics metrics;
+    private long last;
+
+    private static final class Node<V> {
+        // the key offset by 2^31, so that unsigned bit patterns order like the keys
+        long key;
+        final V value;
+        int bucket;
+        int position;
+
+        Node(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    public RadixMinHeap() {
+        this(HuffmanMetrics.NOOP);
+    }
+
+    /**
+     * Creates an empty heap that reports each add, extractMin and decreaseKey to the given
+     * metrics.
+     *
+     * @param metrics where to report operations
+     * @throws IllegalArgumentException if metrics is null
+     */
+    public RadixMinHeap(HuffmanMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException();
+        }
+        for (int b = 0; b < BUCKETS; b++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.metrics = metrics;
+        last = offset(Integer.MIN_VALUE);
+    }
+
+    private static long offset(int key) {
+        return (long) key - Integer.MIN_VALUE;
+    }
+
+    private int bucketOf(long key) {
+        return 64 - Long.numberOfLeadingZeros(key ^ last);
+    }
+
+    private void insert(Node<V> node) {
+        node.bucket = bucketOf(node.key);
+        List<Node<V>> bucket = buckets.get(node.bucket);
+        node.position = bucket.size();
+        bucket.add(node);
+    }
+
+    private void remove(Node<V> node) {
+        List<Node<V>> bucket = buckets.get(node.bucket);
+        Node<V> moved = bucket.remove(bucket.size() - 1);
+        if (moved != node) {
+            moved.position = node.position;
+            bucket.set(node.position, moved);
+        }
+    }
+
+    /**
+     * @return the key most recently extracted, below which keys may not be added or decreased, or
+     * {@link Integer#MIN_VALUE} before the first extraction
+     */
+    public int lastExtracted() {
+        return (int) (last + Integer.MIN_VALUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsValue(V value) {
+        return index.containsKey(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: O(1)
+     *
+     * @throws IllegalArgumentException if key is less than {@link #lastExtracted()}
+     */
+    @Override
+    public void add(Integer key, V value) {
+        if (key == null || containsValue(value) || offset(key) < last) {
+            throw new IllegalArgumentException();
+        }
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.ADD);
+        Node<V> node = new Node<>(offset(key), value);
+        index.put(value, node);
+        insert(node);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: O(1)
+     *
+     * @throws IllegalArgumentException if newKey is less than {@link #lastExtracted()}
+     */
+    @Override
+    public void decreaseKey(V value, Integer newKey) {
+        Node<V> node = index.get(value);
+        if (node == null) {
+            throw new NoSuchElementException();
+        }
+        if (newKey == null || offset(newKey) > node.key || offset(newKey) < last) {
+            throw new IllegalArgumentException();
+        }
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.DECREASE_KEY);
+        remove(node);
+        node.key = offset(newKey);
+        insert(node);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: O(size of the first non-empty bucket); does not redistribute
+     */
+    @Override
+    public Entry<Integer, V> peek() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        Node<V> min = null;
+        for (Node<V> node : firstBucket()) {
+            if (min == null || node.key < min.key) {
+                min = node;
+            }
+        }
+        return new Entry<>((int) (min.key + Integer.MIN_VALUE), min.value);
+    }
+
+    private List<Node<V>> firstBucket() {
+        for (List<Node<V>> bucket : buckets) {
+            if (!bucket.isEmpty()) {
+                return bucket;
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: amortized O(1)
+     */
+    @Override
+    public Entry<Integer, V> extractMin() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        metrics.heapOperation(HuffmanMetrics.HeapOperation.EXTRACT_MIN);
+        List<Node<V>> zero = buckets.get(0);
+        if (zero.isEmpty()) {
+            List<Node<V>> first = firstBucket();
+            long min = Long.MAX_VALUE;
+            for (Node<V> node : first) {
+                min = Math.min(min, node.key);
+            }
+            last = min;
+            // every entry of the bucket now differs from the last key in a lower bit
+            while (!first.isEmpty()) {
+                insert(first.remove(first.size() - 1));
+            }
+        }
+        Node<V> node = zero.remove(zero.size() - 1);
+        index.remove(node.value);
+        return new Entry<>((int) (node.key + Integer.MIN_VALUE), node.value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<V> values() {
+        return index.keySet();
+    }
+}
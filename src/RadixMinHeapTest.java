@@ -0,0 +1,168 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class RadixMinHeapTest {
+
+    //add()
+    @Test
+    public void addPeekSmallest() {
+        RadixMinHeap<String> heap = new RadixMinHeap<>();
+        heap.add(5, "a");
+        heap.add(3, "b");
+        heap.add(8, "c");
+        assertEquals(3, (int) heap.peek().key);
+        assertEquals("b", heap.peek().value);
+        assertEquals(3, heap.size());
+    }
+
+    @Test
+    public void addNegativeKeys() {
+        RadixMinHeap<String> heap = new RadixMinHeap<>();
+        heap.add(-1, "a");
+        heap.add(Integer.MIN_VALUE, "b");
+        heap.add(Integer.MAX_VALUE, "c");
+        heap.add(0, "d");
+        assertEquals("b", heap.extractMin().value);
+        assertEquals("a", heap.extractMin().value);
+        assertEquals("d", heap.extractMin().value);
+        assertEquals("c", heap.extractMin().value);
+    }
+
+    @Test
+    public void addNullValue() {
+        RadixMinHeap<String> heap = new RadixMinHeap<>();
+        heap.add(1, null);
+        assertTrue(heap.containsValue(null));
+        assertNull(heap.extractMin().value);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addNullKey() {
+        new RadixMinHeap<String>().add(null, "a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addExistingValue() {
+        RadixMinHeap<String> heap = new RadixMinHeap<>();
+        heap.add(1, "a");
+        heap.add(2, "a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addBelowLastExtracted() {
+        RadixMinHeap<String> heap = new RadixMinHeap<>();
+        heap.add(4, "a");
+        heap.add(6, "b");
+        heap.extractMin();
+        heap.add(3, "c");
+    }
+
+    @Test
+    public void addEqualToLastExtracted() {
+        RadixMinHeap<String> heap = new RadixMinHeap<>();
+        heap.add(4, "a");
+        heap.extractMin();
+        heap.add(4, "b");
+        assertEquals(4, heap.lastExtracted());
+        assertEquals("b", heap.extractMin().value);
+    }
+
+    //extractMin()
+    @Test
+    public void extractMinSortsRandomMonotone() {
+        Random r = new Random(121);
+        RadixMinHeap<Integer> heap = new RadixMinHeap<>();
+        PriorityQueue<Integer> expected = new PriorityQueue<>();
+        int value = 0;
+        for (int i = 0; i < 1000; i++) {
+            int key = r.nextInt(1 << 20);
+            heap.add(key, value++);
+            expected.add(key);
+        }
+        while (!heap.isEmpty()) {
+            int min = heap.extractMin().key;
+            assertEquals((int) expected.poll(), min);
+            if (r.nextBoolean()) {
+                int key = min + r.nextInt(1 << 20);
+                heap.add(key, value++);
+                expected.add(key);
+            }
+        }
+        assertTrue(expected.isEmpty());
+    }
+
+    @Test
+    public void extractMinHuffmanMerges() {
+        RadixMinHeap<Integer> heap = new RadixMinHeap<>();
+        int[] freq = {1, 4, 8, 6, 7};
+        for (int i = 0; i < freq.length; i++) {
+            heap.add(freq[i], i);
+        }
+        int next = freq.length;
+        int cost = 0;
+        while (heap.size() > 1) {
+            int sum = heap.extractMin().key + heap.extractMin().key;
+            cost += sum;
+            heap.add(sum, next++);
+        }
+        assertEquals(5 + 11 + 15 + 26, cost);
+        assertEquals(26, (int) heap.peek().key);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void extractMinEmpty() {
+        new RadixMinHeap<String>().extractMin();
+    }
+
+    //decreaseKey()
+    @Test
+    public void decreaseKeyMovesToFront() {
+        RadixMinHeap<String> heap = new RadixMinHeap<>();
+        heap.add(5, "a");
+        heap.add(3, "b");
+        heap.add(8, "c");
+        heap.decreaseKey("c", 1);
+        assertEquals("c", heap.extractMin().value);
+        assertEquals("b", heap.extractMin().value);
+        assertEquals("a", heap.extractMin().value);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decreaseKeyBelowLastExtracted() {
+        RadixMinHeap<String> heap = new RadixMinHeap<>();
+        heap.add(5, "a");
+        heap.add(9, "b");
+        heap.extractMin();
+        heap.decreaseKey("b", 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decreaseKeyLarger() {
+        RadixMinHeap<String> heap = new RadixMinHeap<>();
+        heap.add(5, "a");
+        heap.decreaseKey("a", 6);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void decreaseKeyMissing() {
+        new RadixMinHeap<String>().decreaseKey("a", 1);
+    }
+
+    //peek()
+    @Test(expected = NoSuchElementException.class)
+    public void peekEmpty() {
+        new RadixMinHeap<String>().peek();
+    }
+
+    //values()
+    @Test
+    public void valuesAll() {
+        RadixMinHeap<String> heap = new RadixMinHeap<>();
+        heap.add(5, "a");
+        heap.add(3, "b");
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), heap.values());
+    }
+}